@@ -0,0 +1,72 @@
+package ru.hogwarts.school.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Regions of the Hibernate second-level cache. Entity, collection and query regions expire after the configured
+ * TTL and are bounded in entries; the update timestamps region that invalidates cached queries never expires.
+ */
+@Configuration
+public class HibernateCacheConfig {
+    public static final String FACULTY_REGION = "faculty";
+    public static final String FACULTY_STUDENTS_REGION = "faculty.students";
+    public static final String FACULTY_QUERIES_REGION = "faculty-queries";
+    public static final String STUDENT_REGION = "student";
+    public static final String STUDENT_QUERIES_REGION = "student-queries";
+    private static final String DEFAULT_QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${faculties.cache.ttl:1h}") Duration facultyTtl,
+                                              @Value("${faculties.cache.max-entries:10000}") long facultyMaxEntries,
+                                              @Value("${students.cache.ttl:10m}") Duration studentTtl,
+                                              @Value("${students.cache.max-entries:100000}") long studentMaxEntries) {
+        // every application context gets its own manager, so contexts sharing a JVM do not share regions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(FACULTY_REGION, regionConfiguration(facultyTtl, facultyMaxEntries));
+        cacheManager.createCache(FACULTY_STUDENTS_REGION, regionConfiguration(facultyTtl, facultyMaxEntries));
+        cacheManager.createCache(FACULTY_QUERIES_REGION, regionConfiguration(facultyTtl, facultyMaxEntries));
+        cacheManager.createCache(STUDENT_REGION, regionConfiguration(studentTtl, studentMaxEntries));
+        cacheManager.createCache(STUDENT_QUERIES_REGION, regionConfiguration(studentTtl, studentMaxEntries));
+        cacheManager.createCache(DEFAULT_QUERY_RESULTS_REGION, regionConfiguration(studentTtl, studentMaxEntries));
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> hibernateCacheManager.getCacheNames().forEach(name ->
+                JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(name)));
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration(Duration ttl, long maxEntries) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,28 +1,52 @@
 package ru.hogwarts.school.controller;
 
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarBatchItemResponse;
+import ru.hogwarts.school.dto.AvatarDtoResponse;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
+import ru.hogwarts.school.service.AvatarPreviewCache;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.util.PageToken;
+import ru.hogwarts.school.util.SizeLimitedInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.List;
 
 @RestController
 @RequestMapping("avatar")
 public class AvatarController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${avatars.download.zero-copy:true}")
+    private boolean zeroCopyEnabled;
+
+    @Value("${avatars.upload.max-file-size:307200}")
+    private long maxFileSize;
+
+    @Value("${pagination.max-limit:1000}")
+    private int maxPageLimit;
+
     private final AvatarService avatarService;
     private static final Logger logger = LoggerFactory.getLogger(AvatarController.class);
 
@@ -31,46 +55,138 @@ public class AvatarController {
     }
 
     @PostMapping(value = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<String> uploadAvatar(@PathVariable long id, @RequestParam MultipartFile avatar) {
-        if (avatar.getSize() > 1024 * 300) {
+    public ResponseEntity<String> uploadAvatar(@PathVariable long id, @RequestParam MultipartFile avatar) throws IOException {
+        if (avatar.getSize() > maxFileSize) {
             logger.warn("Trying to upload avatar file that is too big: file size = " + avatar.getSize());
             return ResponseEntity.badRequest().body("File is too big");
         }
-        avatarService.uploadAvatar(id, avatar);
+        try (InputStream is = avatar.getInputStream()) {
+            return uploadAvatar(id, is, avatar.getContentType());
+        }
+    }
+
+    /**
+     * Streaming upload: the image is the raw request body, which goes straight into the file store without being
+     * parsed and spooled by the multipart resolver first.
+     */
+    @PostMapping(value = "/{id}", consumes = "image/*")
+    public ResponseEntity<String> uploadAvatar(@PathVariable long id, HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > maxFileSize) {
+            logger.warn("Trying to upload avatar file that is too big: file size = " + request.getContentLengthLong());
+            return ResponseEntity.badRequest().body("File is too big");
+        }
+        return uploadAvatar(id, request.getInputStream(), request.getContentType());
+    }
+
+    private ResponseEntity<String> uploadAvatar(long id, InputStream content, String mediaType) {
+        try {
+            if (avatarService.uploadAvatar(id, content, mediaType) == null) {
+                logger.warn("Trying to upload avatar of a student that does not exist, student id = " + id);
+                return ResponseEntity.notFound().build();
+            }
+        } catch (SizeLimitedInputStream.LimitExceededException limitExceededException) {
+            logger.warn("Trying to upload avatar file that is too big, student id = " + id);
+            return ResponseEntity.badRequest().body("File is too big");
+        }
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<AvatarBatchItemResponse>> uploadAvatars(@RequestParam List<MultipartFile> avatars) {
+        List<AvatarBatchItemResponse> results = avatarService.uploadAvatars(avatars);
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping("/{id}/preview")
-    public ResponseEntity<byte[]> downloadAvatar(@PathVariable long id) {
-        Avatar avatar = avatarService.findAvatar(id);
+    public ResponseEntity<byte[]> downloadAvatar(@PathVariable long id, @RequestParam(required = false) Integer w,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<MediaType> acceptedMediaTypes;
+        try {
+            acceptedMediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException invalidMediaTypeException) {
+            logger.warn("Trying to get preview with malformed Accept header, student id = " + id);
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+        AvatarPreviewCache.CachedPreview preview = avatarService.getCachedPreview(id, w, acceptedMediaTypes);
+        if (preview == null) {
+            Avatar avatar = avatarService.findAvatar(id);
+            if (avatar.getPreviewStatus() == PreviewStatus.PENDING) {
+                return ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, "1").build();
+            }
+            preview = avatarService.findPreview(id, avatar, w, acceptedMediaTypes);
+            if (preview == null) {
+                logger.warn("Trying to get preview that is not available, student id = " + id);
+                return ResponseEntity.notFound().build();
+            }
+        }
 
         HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentType(MediaType.parseMediaType(avatar.getMediaType()));
-        httpHeaders.setContentLength(avatar.getData().length);
+        httpHeaders.setContentType(MediaType.parseMediaType(preview.getMediaType()));
+        httpHeaders.setContentLength(preview.getSize());
+        httpHeaders.setVary(List.of(HttpHeaders.ACCEPT));
 
-        return ResponseEntity.status(HttpStatus.OK).headers(httpHeaders).body(avatar.getData());
+        return ResponseEntity.status(HttpStatus.OK).headers(httpHeaders).body(preview.getData());
     }
 
     @GetMapping("/{id}")
-    public void downloadAvatar(@PathVariable long id, HttpServletResponse response) {
+    public ResponseEntity<Resource> downloadAvatar(@PathVariable long id, ServletWebRequest webRequest) {
         Avatar avatar = avatarService.findAvatar(id);
+        if (avatar.getFilePath() == null) {
+            logger.warn("Trying to download avatar of a student without avatar, student id = " + id);
+            return ResponseEntity.notFound().build();
+        }
 
-        Path path = Path.of(avatar.getFilePath());
+        FileSystemResource resource = new FileSystemResource(avatar.getFilePath());
+        long lastModified;
+        try {
+            lastModified = resource.lastModified();
+        } catch (IOException ioException) {
+            logger.error("IOException when reading avatar file attributes");
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = avatarService.getETag(avatar, lastModified);
 
-        try (InputStream is = Files.newInputStream(path);
-             OutputStream os = response.getOutputStream()) {
-            response.setStatus(200);
+        HttpServletRequest request = webRequest.getRequest();
+        if (zeroCopyEnabled && request.getHeader(HttpHeaders.RANGE) == null
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            if (webRequest.checkNotModified(eTag, lastModified)) {
+                return null;
+            }
+            HttpServletResponse response = webRequest.getResponse();
+            response.setStatus(HttpStatus.OK.value());
             response.setContentType(avatar.getMediaType());
-            response.setContentLength((int) avatar.getFileSize());
-            is.transferTo(os);
-        } catch (IOException ioException) {
-            logger.error("IOException when downloading avatar file");
+            response.setContentLengthLong(resource.getFile().length());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            request.setAttribute(SENDFILE_FILENAME, resource.getFile().getAbsolutePath());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, resource.getFile().length());
+            return null;
+        }
+
+        // Range and conditional requests are resolved by Spring: a Range header turns the body into resource regions
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(avatar.getMediaType()))
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(resource);
+    }
+
+    @GetMapping(value = "list", params = "limit")
+    public ResponseEntity<PageDtoResponse<AvatarDtoResponse>> getAvatars(@RequestParam(required = false) String after,
+                                                                      @RequestParam int limit) {
+        Long afterId = PageToken.decode(after);
+        if (afterId == null || limit < 1 || limit > maxPageLimit) {
+            logger.warn("Trying to get page of avatars with invalid cursor or limit = " + limit);
+            return ResponseEntity.badRequest().build();
         }
+        PageDtoResponse<AvatarDtoResponse> avatars = avatarService.getAvatarsAfter(afterId, limit);
+        return ResponseEntity.ok(avatars);
     }
 
     @GetMapping("list")
-    public ResponseEntity<List<Avatar>> getAvatars(@RequestParam int page, @RequestParam int size) {
-        List<Avatar> avatars = avatarService.getAvatarPage(page, size);
+    public ResponseEntity<List<AvatarDtoResponse>> getAvatars(@RequestParam int page, @RequestParam int size) {
+        List<AvatarDtoResponse> avatars = avatarService.getAvatarPage(page, size);
         return ResponseEntity.ok(avatars);
     }
 }
@@ -2,27 +2,50 @@ package ru.hogwarts.school.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.hogwarts.school.dto.ComputeDtoResponse;
 import ru.hogwarts.school.dto.FacultyDtoIn;
 import ru.hogwarts.school.dto.FacultyDtoInWithId;
 import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.FacultyDtoResponseV2;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.SumStrategy;
+import ru.hogwarts.school.service.ComputeService;
 import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.util.PageToken;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/faculty")
 public class FacultyController {
+    @Value("${pagination.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Value("${students.batch.max-ids:500}")
+    private int maxBatchSize;
+
+    @Value("${compute.max-range:1000000000}")
+    private long maxComputeRange;
+
+    @Value("${compute.max-warmups:10}")
+    private int maxComputeWarmups;
+
     private final FacultyService facultyService;
+    private final ComputeService computeService;
     private static final Logger logger = LoggerFactory.getLogger(FacultyController.class);
 
 
-    public FacultyController(FacultyService facultyService) {
+    public FacultyController(FacultyService facultyService, ComputeService computeService) {
         this.facultyService = facultyService;
+        this.computeService = computeService;
     }
 
     @GetMapping("{id}")
@@ -35,12 +58,39 @@ public class FacultyController {
         return ResponseEntity.ok(facultyDtoResponse);
     }
 
+    @GetMapping(value = "{id}", headers = "X-API-Version=2")
+    public ResponseEntity<FacultyDtoResponseV2> getFacultyInfoV2(@PathVariable Long id) {
+        FacultyDtoResponseV2 facultyDtoResponse = facultyService.getFacultyDtoOutV2(id);
+        if (facultyDtoResponse == null) {
+            logger.warn("Trying to get faculty with nonexistent id = " + id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(facultyDtoResponse);
+    }
+
     @GetMapping
     public ResponseEntity<List<FacultyDtoResponse>> getAllFaculties() {
         List<FacultyDtoResponse> allFacultiesDto = facultyService.getAllFaculties();
         return ResponseEntity.ok(allFacultiesDto);
     }
 
+    @GetMapping(headers = "X-API-Version=2")
+    public ResponseEntity<List<FacultyDtoResponseV2>> getAllFacultiesV2() {
+        return ResponseEntity.ok(facultyService.getAllFacultiesV2());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDtoResponse<FacultyDtoResponse>> getFacultiesPage(@RequestParam(required = false) String after,
+                                                                              @RequestParam int limit) {
+        Long afterId = PageToken.decode(after);
+        if (afterId == null || limit < 1 || limit > maxPageLimit) {
+            logger.warn("Trying to get page of faculties with invalid cursor or limit = " + limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        PageDtoResponse<FacultyDtoResponse> page = facultyService.getFacultiesPage(afterId, limit);
+        return ResponseEntity.ok(page);
+    }
+
     @GetMapping("/filter/{color}")
     public ResponseEntity<List<FacultyDtoResponse>> getFacultiesByColor(@PathVariable String color) {
         List<FacultyDtoResponse> allFacultiesDtoByColor = facultyService.filterByColor(color);
@@ -54,6 +104,16 @@ public class FacultyController {
         return ResponseEntity.ok(allFacultiesDtoByColorOrName);
     }
 
+    @GetMapping(value = "/search", params = "query")
+    public ResponseEntity<List<FacultyDtoResponse>> searchFaculties(@RequestParam String query,
+                                                                    @RequestParam(defaultValue = "20") int limit) {
+        if (query.isBlank() || limit < 1 || limit > maxPageLimit) {
+            logger.warn("Trying to search faculties with blank query or invalid limit = " + limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(facultyService.searchFaculties(query, limit));
+    }
+
     @GetMapping("/students/{id}")
     public ResponseEntity<List<StudentDtoResponse>> getAllStudents(@PathVariable Long id) {
         Faculty faculty = facultyService.getFaculty(id);
@@ -65,6 +125,16 @@ public class FacultyController {
         return ResponseEntity.ok(studentDtoResponses);
     }
 
+    @GetMapping(value = "/students/{id}", headers = "X-API-Version=2")
+    public ResponseEntity<List<StudentDtoResponseV2>> getAllStudentsV2(@PathVariable Long id) {
+        Faculty faculty = facultyService.getFaculty(id);
+        if (faculty == null) {
+            logger.warn("Trying to get all students of a faculty with nonexistent id = " + id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(facultyService.getStudentDtosV2(faculty));
+    }
+
     @PostMapping
     public ResponseEntity<FacultyDtoResponse> addFaculty(@RequestBody FacultyDtoIn facultyDtoIn) {
         FacultyDtoResponse facultyDtoResponse = facultyService.addFaculty(facultyDtoIn);
@@ -73,18 +143,29 @@ public class FacultyController {
 
     @PutMapping
     public ResponseEntity<FacultyDtoResponse> editFaculty(@RequestBody FacultyDtoInWithId facultyDtoInWithId) {
-        Faculty getFaculty = facultyService.getFaculty(facultyDtoInWithId.getId());
-        if (getFaculty == null) {
+        FacultyDtoResponse foundFaculty;
+        try {
+            foundFaculty = facultyService.editFaculty(facultyDtoInWithId);
+        } catch (OptimisticLockingFailureException optimisticLockingFailureException) {
+            logger.warn("Trying to edit faculty that has been changed concurrently, id = " + facultyDtoInWithId.getId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (foundFaculty == null) {
             logger.warn("Trying to edit faculty with nonexistent id = " + facultyDtoInWithId.getId());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        FacultyDtoResponse foundFaculty = facultyService.editFaculty(facultyDtoInWithId);
         return ResponseEntity.ok(foundFaculty);
     }
 
     @PutMapping("add_student")
     public ResponseEntity<FacultyDtoResponse> addStudentToFaculty(@RequestParam long studentId, @RequestParam long facultyId) {
-        FacultyDtoResponse facultyDtoResponse = facultyService.addStudentToFaculty(studentId, facultyId);
+        FacultyDtoResponse facultyDtoResponse;
+        try {
+            facultyDtoResponse = facultyService.addStudentToFaculty(studentId, facultyId);
+        } catch (OptimisticLockingFailureException optimisticLockingFailureException) {
+            logger.warn("Trying to add student to a faculty while the student is changed concurrently, student id = " + studentId);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         if (facultyDtoResponse == null) {
             logger.warn("Trying to add student to a faculty with either nonexistent student id = " + studentId +
                     " or with nonexistent faculty id = " + facultyId);
@@ -93,14 +174,40 @@ public class FacultyController {
         return ResponseEntity.ok(facultyDtoResponse);
     }
 
+    @PutMapping("{id}/students")
+    public ResponseEntity<FacultyDtoResponse> addStudentsToFaculty(@PathVariable long id, @RequestBody List<Long> studentIds) {
+        if (studentIds.size() > maxBatchSize) {
+            logger.warn("Trying to add too many students to a faculty in one batch: number of ids = " + studentIds.size());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        FacultyDtoResponse facultyDtoResponse;
+        try {
+            facultyDtoResponse = facultyService.addStudentsToFaculty(studentIds, id);
+        } catch (OptimisticLockingFailureException optimisticLockingFailureException) {
+            logger.warn("Trying to add students to a faculty while some of them are changed concurrently, faculty id = " + id);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (facultyDtoResponse == null) {
+            logger.warn("Trying to add students to a faculty with either nonexistent faculty id = " + id +
+                    " or some nonexistent student ids");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(facultyDtoResponse);
+    }
+
     @DeleteMapping("{id}")
     public ResponseEntity<FacultyDtoResponse> deleteFaculty(@PathVariable long id) {
-        Faculty getFaculty = facultyService.getFaculty(id);
-        if (getFaculty == null) {
+        boolean removed;
+        try {
+            removed = facultyService.removeFaculty(id);
+        } catch (OptimisticLockingFailureException optimisticLockingFailureException) {
+            logger.warn("Trying to delete faculty that has been changed concurrently, id = " + id);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (!removed) {
             logger.warn("Trying to delete faculty with nonexistent id = " + id);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        facultyService.removeFaculty(id);
         return ResponseEntity.ok().build();
     }
 
@@ -118,7 +225,18 @@ public class FacultyController {
 
     @GetMapping("/get_number")
     public ResponseEntity<Long> getNumber() {
-        Long number = facultyService.getNumber();
+        Long number = computeService.sum(1_000_000, SumStrategy.FORK_JOIN_POOL, 0).getSum();
         return ResponseEntity.ok(number);
     }
+
+    @GetMapping("/compute")
+    public ResponseEntity<ComputeDtoResponse> compute(@RequestParam(defaultValue = "1000000") long n,
+                                                      @RequestParam(defaultValue = "FORK_JOIN_POOL") SumStrategy strategy,
+                                                      @RequestParam(defaultValue = "0") int warmups) {
+        if (n < 1 || n > maxComputeRange || warmups < 0 || warmups > maxComputeWarmups) {
+            logger.warn("Trying to compute with invalid n = " + n + " or warmups = " + warmups);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(computeService.sum(n, strategy, warmups));
+    }
 }
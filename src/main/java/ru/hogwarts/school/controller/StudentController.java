@@ -1,28 +1,56 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.FacultyDtoResponseV2;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.dto.StudentDtoIn;
 import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
+import ru.hogwarts.school.dto.StudentImportDtoResponse;
+import ru.hogwarts.school.dto.StudentStatsDtoResponse;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 import ru.hogwarts.school.util.FacultyDTOMapper;
+import ru.hogwarts.school.util.PageToken;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/student")
 public class StudentController {
+    @Value("${students.batch.max-ids:500}")
+    private int maxBatchSize;
+
+    @Value("${pagination.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Value("${students.export.timeout:1h}")
+    private Duration exportTimeout;
+
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
     private final FacultyDTOMapper facultyDTOMapper;
     private static final Logger logger = LoggerFactory.getLogger(StudentController.class);
 
-    public StudentController(StudentService studentService, FacultyDTOMapper facultyDTOMapper) {
+    public StudentController(StudentService studentService, StudentImportService studentImportService,
+                             FacultyDTOMapper facultyDTOMapper) {
         this.studentService = studentService;
+        this.studentImportService = studentImportService;
         this.facultyDTOMapper = facultyDTOMapper;
     }
 
@@ -36,12 +64,57 @@ public class StudentController {
         return ResponseEntity.ok(studentDtoResponse);
     }
 
+    @GetMapping(value = "{id}", headers = "X-API-Version=2")
+    public ResponseEntity<StudentDtoResponseV2> getStudentInfoV2(@PathVariable Long id) {
+        StudentDtoResponseV2 studentDtoResponse = studentService.getStudentDtoOutV2(id);
+        if (studentDtoResponse == null) {
+            logger.warn("Trying to get student with nonexistent id = " + id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(studentDtoResponse);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<StudentDtoResponse>> getStudentsInfo(@RequestBody List<Long> ids) {
+        if (ids.size() > maxBatchSize) {
+            logger.warn("Trying to get too many students in one batch: number of ids = " + ids.size());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        List<StudentDtoResponse> students = studentService.getStudentsDtoOut(ids);
+        return ResponseEntity.ok(students);
+    }
+
     @GetMapping
     public ResponseEntity<List<StudentDtoResponse>> getAllStudents() {
         List<StudentDtoResponse> allStudentsDto = studentService.getAllStudents();
         return ResponseEntity.ok(allStudentsDto);
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDtoResponse<StudentDtoResponse>> getStudentsPage(@RequestParam(required = false) String after,
+                                                                             @RequestParam int limit) {
+        Long afterId = PageToken.decode(after);
+        if (afterId == null || limit < 1 || limit > maxPageLimit) {
+            logger.warn("Trying to get page of students with invalid cursor or limit = " + limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        PageDtoResponse<StudentDtoResponse> page = studentService.getStudentsPage(afterId, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * The export may run much longer than other async requests, so it carries its own timeout rather than raising
+     * the global one.
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportStudents(HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            studentService.exportStudents(response.getOutputStream());
+            return null;
+        });
+    }
+
     @GetMapping("/faculty/{id}")
     public ResponseEntity<FacultyDtoResponse> getStudentsFaculty(@PathVariable Long id) {
         Student student = studentService.getStudent(id);
@@ -52,6 +125,16 @@ public class StudentController {
         return ResponseEntity.ok(facultyDTOMapper.facultyToDtoOut(student.getFaculty()));
     }
 
+    @GetMapping(value = "/faculty/{id}", headers = "X-API-Version=2")
+    public ResponseEntity<FacultyDtoResponseV2> getStudentsFacultyV2(@PathVariable Long id) {
+        Student student = studentService.getStudent(id);
+        if (student == null) {
+            logger.warn("Trying to get students faculty with nonexistent student id = " + id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(facultyDTOMapper.facultyToDtoOutV2(student.getFaculty()));
+    }
+
     @GetMapping("/filter")
     public ResponseEntity<List<StudentDtoResponse>> getStudentsByAgeBetween
             (@RequestParam(required = false) int minAge, @RequestParam(required = false) int maxAge) {
@@ -65,9 +148,19 @@ public class StudentController {
         return ResponseEntity.ok(studentsDtoByAge);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<List<String>> searchStudentNames(@RequestParam String prefix,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        if (prefix.isEmpty() || limit < 1 || limit > maxPageLimit) {
+            logger.warn("Trying to search students with empty prefix or invalid limit = " + limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(studentService.searchStudentNames(prefix, limit));
+    }
+
     @GetMapping("/total_number")
-    public ResponseEntity<Integer> getTotalNumberOfStudents() {
-        Integer total = studentService.getTotalNumberOfStudents();
+    public ResponseEntity<Long> getTotalNumberOfStudents() {
+        Long total = studentService.getTotalNumberOfStudents();
         return ResponseEntity.ok(total);
     }
 
@@ -77,6 +170,12 @@ public class StudentController {
         return ResponseEntity.ok(averageAgeOfStudents);
     }
 
+    @GetMapping("/stats")
+    public ResponseEntity<StudentStatsDtoResponse> getStudentStats() {
+        StudentStatsDtoResponse stats = studentService.getStudentStats();
+        return ResponseEntity.ok(stats);
+    }
+
     @GetMapping("/latest_five")
     public ResponseEntity<List<StudentDtoResponse>> getLatestFiveStudents() {
         List<StudentDtoResponse> latestFiveStudents = studentService.getLatestFiveOfStudents();
@@ -89,25 +188,41 @@ public class StudentController {
         return ResponseEntity.ok(studentDtoResponse);
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StudentImportDtoResponse> importStudents(HttpServletRequest request) throws IOException {
+        StudentImportDtoResponse result = studentImportService.importStudents(request.getInputStream());
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping
     public ResponseEntity<StudentDtoResponse> editStudent(@RequestBody StudentDtoResponse studentDtoResponse) {
-        Student foundStudent = studentService.getStudent(studentDtoResponse.getId());
-        if (foundStudent == null) {
+        StudentDtoResponse editedStudent;
+        try {
+            editedStudent = studentService.editStudent(studentDtoResponse);
+        } catch (OptimisticLockingFailureException optimisticLockingFailureException) {
+            logger.warn("Trying to edit student that has been changed concurrently, id = " + studentDtoResponse.getId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (editedStudent == null) {
             logger.warn("Trying to edit student with nonexistent id = " + studentDtoResponse.getId());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        StudentDtoResponse editedStudent = studentService.editStudent(studentDtoResponse);
         return ResponseEntity.ok(editedStudent);
     }
 
     @DeleteMapping("{id}")
     public ResponseEntity<StudentDtoResponse> deleteStudent(@PathVariable long id) {
-        Student foundStudent = studentService.getStudent(id);
-        if (foundStudent == null) {
+        boolean removed;
+        try {
+            removed = studentService.removeStudent(id);
+        } catch (OptimisticLockingFailureException optimisticLockingFailureException) {
+            logger.warn("Trying to delete student that has been changed concurrently, id = " + id);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (!removed) {
             logger.warn("Trying to delete student with nonexistent id = " + id);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        studentService.removeStudent(id);
         return ResponseEntity.ok().build();
     }
 
@@ -130,14 +245,25 @@ public class StudentController {
     }
 
     @GetMapping("print-parallel")
-    public ResponseEntity<Void> printParallel() {
-        studentService.printParallel();
-        return ResponseEntity.ok().build();
+    public ResponseEntity<List<String>> printParallel(@RequestParam(defaultValue = "6") int limit) {
+        return reportStudents(limit, false);
     }
 
     @GetMapping("print-synchronized")
-    public ResponseEntity<Void> printSynchronized() {
-        studentService.printSynchronized();
-        return ResponseEntity.ok().build();
+    public ResponseEntity<List<String>> printSynchronized(@RequestParam(defaultValue = "6") int limit) {
+        return reportStudents(limit, true);
+    }
+
+    private ResponseEntity<List<String>> reportStudents(int limit, boolean ordered) {
+        if (limit < 1 || limit > maxPageLimit) {
+            logger.warn("Trying to build a report of students with invalid limit = " + limit);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        try {
+            return ResponseEntity.ok(studentService.reportStudents(limit, ordered));
+        } catch (TimeoutException e) {
+            logger.warn("Report of students timed out: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 }
@@ -0,0 +1,33 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class AgeGroup {
+    private final int age;
+    private final long count;
+
+    public AgeGroup(int age, long count) {
+        this.age = age;
+        this.count = count;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AgeGroup ageGroup)) return false;
+        return age == ageGroup.age && count == ageGroup.count;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(age, count);
+    }
+}
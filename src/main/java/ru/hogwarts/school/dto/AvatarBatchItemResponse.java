@@ -0,0 +1,45 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class AvatarBatchItemResponse {
+    private final String fileName;
+    private final Long studentId;
+    private final boolean uploaded;
+    private final String error;
+
+    public AvatarBatchItemResponse(String fileName, Long studentId, boolean uploaded, String error) {
+        this.fileName = fileName;
+        this.studentId = studentId;
+        this.uploaded = uploaded;
+        this.error = error;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public boolean isUploaded() {
+        return uploaded;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AvatarBatchItemResponse that)) return false;
+        return uploaded == that.uploaded && Objects.equals(fileName, that.fileName) && Objects.equals(studentId, that.studentId) && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileName, studentId, uploaded, error);
+    }
+}
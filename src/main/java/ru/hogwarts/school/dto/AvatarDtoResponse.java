@@ -0,0 +1,87 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.PreviewStatus;
+
+import java.util.Objects;
+
+public class AvatarDtoResponse {
+    private long id;
+    private long studentId;
+    private String filePath;
+    private long fileSize;
+    private String mediaType;
+    private PreviewStatus previewStatus;
+
+    public AvatarDtoResponse() {
+    }
+
+    public AvatarDtoResponse(long id, Long studentId, String filePath, long fileSize, String mediaType,
+                             PreviewStatus previewStatus) {
+        this.id = id;
+        this.studentId = studentId == null ? 0 : studentId;
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.mediaType = mediaType;
+        this.previewStatus = previewStatus;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(long studentId) {
+        this.studentId = studentId;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public PreviewStatus getPreviewStatus() {
+        return previewStatus;
+    }
+
+    public void setPreviewStatus(PreviewStatus previewStatus) {
+        this.previewStatus = previewStatus;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AvatarDtoResponse that)) return false;
+        return id == that.id && studentId == that.studentId && fileSize == that.fileSize && Objects.equals(filePath, that.filePath) && Objects.equals(mediaType, that.mediaType) && previewStatus == that.previewStatus;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, studentId, filePath, fileSize, mediaType, previewStatus);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class AvatarPreviewInfo {
+    private final long id;
+    private final int width;
+    private final String mediaType;
+    private final int dataSize;
+
+    public AvatarPreviewInfo(long id, int width, String mediaType, int dataSize) {
+        this.id = id;
+        this.width = width;
+        this.mediaType = mediaType;
+        this.dataSize = dataSize;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public int getDataSize() {
+        return dataSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AvatarPreviewInfo that)) return false;
+        return id == that.id && width == that.width && dataSize == that.dataSize && Objects.equals(mediaType, that.mediaType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, width, mediaType, dataSize);
+    }
+}
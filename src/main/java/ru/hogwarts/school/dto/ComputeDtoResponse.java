@@ -0,0 +1,77 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.SumStrategy;
+
+import java.util.Objects;
+
+public class ComputeDtoResponse {
+    private long sum;
+    private long n;
+    private SumStrategy strategy;
+    private int parallelism;
+    private long elapsedNanos;
+
+    public ComputeDtoResponse() {
+    }
+
+    public ComputeDtoResponse(long sum, long n, SumStrategy strategy, int parallelism, long elapsedNanos) {
+        this.sum = sum;
+        this.n = n;
+        this.strategy = strategy;
+        this.parallelism = parallelism;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public void setSum(long sum) {
+        this.sum = sum;
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public void setN(long n) {
+        this.n = n;
+    }
+
+    public SumStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(SumStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ComputeDtoResponse that)) return false;
+        return sum == that.sum && n == that.n && parallelism == that.parallelism
+                && elapsedNanos == that.elapsedNanos && strategy == that.strategy;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sum, n, strategy, parallelism, elapsedNanos);
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Objects;
 
 public class FacultyDtoInWithId extends FacultyDtoIn {
     private long id;
+    private Long version;
 
     public FacultyDtoInWithId(String name, String color, long id) {
         super(name, color);
@@ -18,6 +19,14 @@ public class FacultyDtoInWithId extends FacultyDtoIn {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -8,6 +8,7 @@ public class FacultyDtoResponse {
     private long id;
     private String name;
     private String color;
+    private Long version;
     private final Set<StudentDtoResponse> students = new HashSet<>();
 
     public FacultyDtoResponse() {
@@ -39,6 +40,14 @@ public class FacultyDtoResponse {
         return color;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public void setColor(String color) {
         this.color = color;
     }
@@ -0,0 +1,29 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable faculty of the version 2 responses: the students are a list ordered by id instead of a set. The list is
+ * taken as is, so it must not be changed afterwards; {@link ru.hogwarts.school.util.FacultyDTOMapper} hands over an
+ * unmodifiable one.
+ */
+public record FacultyDtoResponseV2(long id, String name, String color, Long version,
+                                   List<StudentDtoResponseV2> students) {
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FacultyDtoResponseV2 that)) return false;
+        return id == that.id && Objects.equals(name, that.name) && Objects.equals(color, that.color)
+                && Objects.equals(students, that.students);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(id);
+        result = 31 * result + Objects.hashCode(name);
+        result = 31 * result + Objects.hashCode(color);
+        return 31 * result + Objects.hashCode(students);
+    }
+}
@@ -7,6 +7,7 @@ public class StudentDtoResponse {
     private String name;
     private int age;
     private long facultyId;
+    private Long version;
 
     public StudentDtoResponse() {
     }
@@ -50,6 +51,14 @@ public class StudentDtoResponse {
         this.facultyId = facultyId;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -69,6 +78,7 @@ public class StudentDtoResponse {
                 ", name='" + name + '\'' +
                 ", age=" + age +
                 ", facultyId=" + facultyId +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,25 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+/**
+ * Immutable student of the version 2 responses. The JSON is the same as that of {@link StudentDtoResponse};
+ * equality leaves out the version as there, and the hash is combined from the fields without boxing them.
+ */
+public record StudentDtoResponseV2(long id, String name, int age, long facultyId, Long version) {
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudentDtoResponseV2 that)) return false;
+        return id == that.id && age == that.age && facultyId == that.facultyId && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(id);
+        result = 31 * result + Objects.hashCode(name);
+        result = 31 * result + age;
+        return 31 * result + Long.hashCode(facultyId);
+    }
+}
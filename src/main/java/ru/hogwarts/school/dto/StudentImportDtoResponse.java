@@ -0,0 +1,104 @@
+package ru.hogwarts.school.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class StudentImportDtoResponse {
+    private long imported;
+    private long failed;
+    private final List<ChunkError> errors = new ArrayList<>();
+
+    public StudentImportDtoResponse() {
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<ChunkError> getErrors() {
+        return errors;
+    }
+
+    public void addError(ChunkError error) {
+        errors.add(error);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudentImportDtoResponse that)) return false;
+        return imported == that.imported && failed == that.failed && Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(imported, failed, errors);
+    }
+
+    /**
+     * Records are numbered from 1 in the order they appear in the request.
+     */
+    public static class ChunkError {
+        private long firstRecord;
+        private long lastRecord;
+        private String message;
+
+        public ChunkError() {
+        }
+
+        public ChunkError(long firstRecord, long lastRecord, String message) {
+            this.firstRecord = firstRecord;
+            this.lastRecord = lastRecord;
+            this.message = message;
+        }
+
+        public long getFirstRecord() {
+            return firstRecord;
+        }
+
+        public void setFirstRecord(long firstRecord) {
+            this.firstRecord = firstRecord;
+        }
+
+        public long getLastRecord() {
+            return lastRecord;
+        }
+
+        public void setLastRecord(long lastRecord) {
+            this.lastRecord = lastRecord;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ChunkError that)) return false;
+            return firstRecord == that.firstRecord && lastRecord == that.lastRecord && Objects.equals(message, that.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstRecord, lastRecord, message);
+        }
+    }
+}
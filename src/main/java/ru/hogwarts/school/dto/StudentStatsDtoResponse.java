@@ -0,0 +1,57 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+public class StudentStatsDtoResponse {
+    private long count;
+    private double averageAge;
+    private Map<Integer, Long> ageHistogram = new TreeMap<>();
+
+    public StudentStatsDtoResponse() {
+    }
+
+    public StudentStatsDtoResponse(long count, double averageAge, Map<Integer, Long> ageHistogram) {
+        this.count = count;
+        this.averageAge = averageAge;
+        this.ageHistogram = ageHistogram;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getAverageAge() {
+        return averageAge;
+    }
+
+    public void setAverageAge(double averageAge) {
+        this.averageAge = averageAge;
+    }
+
+    public Map<Integer, Long> getAgeHistogram() {
+        return ageHistogram;
+    }
+
+    public void setAgeHistogram(Map<Integer, Long> ageHistogram) {
+        this.ageHistogram = ageHistogram;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudentStatsDtoResponse that)) return false;
+        return count == that.count && Double.compare(averageAge, that.averageAge) == 0
+                && Objects.equals(ageHistogram, that.ageHistogram);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, averageAge, ageHistogram);
+    }
+}
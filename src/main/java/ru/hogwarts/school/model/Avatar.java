@@ -13,20 +13,22 @@ public class Avatar {
     private String filePath;
     private long fileSize;
     private String mediaType;
-    @Lob
-    private byte[] data;
+    private String contentHash;
+    private Integer width;
+    private Integer height;
+    @Enumerated(EnumType.STRING)
+    private PreviewStatus previewStatus;
     @JsonIgnore
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private Student student;
 
     public Avatar() {
     }
 
-    public Avatar(String filePath, long fileSize, String mediaType, byte[] data, Student student) {
+    public Avatar(String filePath, long fileSize, String mediaType, Student student) {
         this.filePath = filePath;
         this.fileSize = fileSize;
         this.mediaType = mediaType;
-        this.data = data;
         this.student = student;
     }
 
@@ -62,12 +64,36 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getContentHash() {
+        return contentHash;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public PreviewStatus getPreviewStatus() {
+        return previewStatus;
+    }
+
+    public void setPreviewStatus(PreviewStatus previewStatus) {
+        this.previewStatus = previewStatus;
     }
 
     public Student getStudent() {
@@ -1,10 +1,16 @@
 package ru.hogwarts.school.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
+import ru.hogwarts.school.config.HibernateCacheConfig;
 
 import java.util.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.FACULTY_REGION)
 public class Faculty {
     @Id
     @GeneratedValue
@@ -13,8 +19,13 @@ public class Faculty {
     private String color;
 
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "faculty")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.FACULTY_STUDENTS_REGION)
+    @OptimisticLock(excluded = true)
     private final Set<Student> students = new HashSet<>();
 
+    @Version
+    private long version;
+
     public Faculty() {
     }
 
@@ -53,6 +64,14 @@ public class Faculty {
         this.color = color;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Collection<Student> getStudents() {
         return Collections.unmodifiableSet(students);
     }
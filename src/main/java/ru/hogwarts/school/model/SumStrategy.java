@@ -0,0 +1,8 @@
+package ru.hogwarts.school.model;
+
+public enum SumStrategy {
+    SEQUENTIAL,
+    PARALLEL_STREAM,
+    FORK_JOIN_POOL,
+    CLOSED_FORM
+}
@@ -0,0 +1,20 @@
+package ru.hogwarts.school.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.AvatarPreviewInfo;
+import ru.hogwarts.school.model.AvatarPreview;
+
+import java.util.List;
+
+public interface AvatarPreviewRepository extends JpaRepository<AvatarPreview, Long> {
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarPreviewInfo(p.id, p.width, p.mediaType, p.dataSize) " +
+            "FROM AvatarPreview p WHERE p.avatar.id = :avatarId")
+    List<AvatarPreviewInfo> findInfoByAvatarId(@Param("avatarId") long avatarId);
+
+    @Modifying
+    @Query("DELETE FROM AvatarPreview p WHERE p.avatar.id = :avatarId")
+    int deleteByAvatarId(@Param("avatarId") long avatarId);
+}
@@ -1,10 +1,42 @@
 package ru.hogwarts.school.repositories;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.AvatarDtoResponse;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface AvatarRepository extends JpaRepository<Avatar, Long> {
+public interface AvatarRepository extends JpaRepository<Avatar, Long>, PersistenceContextRepository {
     Optional<Avatar> findByStudentId(long studentId);
+
+    List<Avatar> findAllByStudentIdIn(Collection<Long> studentIds);
+
+    long countByContentHash(String contentHash);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarDtoResponse(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.previewStatus) " +
+            "FROM Avatar a ORDER BY a.id")
+    List<AvatarDtoResponse> findAvatarInfos(Pageable pageable);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarDtoResponse(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.previewStatus) " +
+            "FROM Avatar a WHERE a.id > :afterId ORDER BY a.id")
+    List<AvatarDtoResponse> findAvatarInfosAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Sets the preview status only while the avatar still holds the given content, so that the result of a task
+     * scheduled for a replaced upload is not recorded.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Avatar a SET a.previewStatus = :status WHERE a.id = :id AND a.contentHash = :contentHash")
+    int updatePreviewStatus(@Param("id") long id, @Param("contentHash") String contentHash,
+                            @Param("status") PreviewStatus status);
 }
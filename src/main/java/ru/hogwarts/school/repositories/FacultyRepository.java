@@ -1,12 +1,78 @@
 package ru.hogwarts.school.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.config.HibernateCacheConfig;
 import ru.hogwarts.school.model.Faculty;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * List queries fetch the students together with the faculties, because every faculty DTO includes its students.
+ */
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
+    @Override
+    @EntityGraph(attributePaths = "students")
+    List<Faculty> findAll();
+
+    /**
+     * Reads the row rather than the second-level cache entry, whose version may be outdated, and refreshes the entry.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHE_MODE, value = "REFRESH"))
+    Optional<Faculty> findCurrentById(long id);
+
+    @Query("SELECT f.name FROM Faculty f WHERE LENGTH(f.name) = (SELECT MAX(LENGTH(m.name)) FROM Faculty m) ORDER BY f.id")
+    List<String> findLongestNames();
+
+    @Query("SELECT f.id FROM Faculty f WHERE f.id > :afterId ORDER BY f.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @EntityGraph(attributePaths = "students")
+    List<Faculty> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @EntityGraph(attributePaths = "students")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = HibernateCacheConfig.FACULTY_QUERIES_REGION)})
     Collection<Faculty> findByColor(String color);
 
-    Collection<Faculty> findByColorIgnoreCaseOrNameIgnoreCase(String requestOne, String requestTwo);
+    /**
+     * Compares lower() of both columns, so the faculty_name_lower and faculty_color_lower indexes are used.
+     */
+    @EntityGraph(attributePaths = "students")
+    @Query("SELECT f FROM Faculty f WHERE lower(f.color) = lower(:request) OR lower(f.name) = lower(:request)")
+    Collection<Faculty> findByColorOrNameIgnoreCase(@Param("request") String request);
+
+    /**
+     * Postgres search over the pg_trgm indexes: exact matches of name or color rank first, then prefix matches,
+     * then similar names and colors by trigram similarity. The query is expected in lower case.
+     */
+    @Query(value = "SELECT f.id FROM faculty f "
+            + "WHERE lower(f.name) LIKE :prefix ESCAPE '\\' OR lower(f.color) LIKE :prefix ESCAPE '\\' "
+            + "OR lower(f.name) % :query OR lower(f.color) % :query "
+            + "ORDER BY (lower(f.name) = :query OR lower(f.color) = :query) DESC, "
+            + "(lower(f.name) LIKE :prefix ESCAPE '\\' OR lower(f.color) LIKE :prefix ESCAPE '\\') DESC, "
+            + "greatest(similarity(lower(f.name), :query), similarity(lower(f.color), :query)) DESC, f.id "
+            + "LIMIT :limit", nativeQuery = true)
+    List<Long> searchIdsBySimilarity(@Param("query") String query, @Param("prefix") String prefix,
+                                     @Param("limit") int limit);
+
+    /**
+     * Portable search for databases without pg_trgm: substring matches, exact matches ranked first and prefix
+     * matches second. The query is expected in lower case.
+     */
+    @Query("SELECT f.id FROM Faculty f "
+            + "WHERE lower(f.name) LIKE :contains ESCAPE '\\' OR lower(f.color) LIKE :contains ESCAPE '\\' "
+            + "ORDER BY CASE WHEN lower(f.name) = :query OR lower(f.color) = :query THEN 0 "
+            + "WHEN lower(f.name) LIKE :prefix ESCAPE '\\' OR lower(f.color) LIKE :prefix ESCAPE '\\' THEN 1 "
+            + "ELSE 2 END, f.id")
+    List<Long> searchIdsByPattern(@Param("query") String query, @Param("prefix") String prefix,
+                                  @Param("contains") String contains, Limit limit);
 }
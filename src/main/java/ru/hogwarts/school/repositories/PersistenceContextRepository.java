@@ -0,0 +1,9 @@
+package ru.hogwarts.school.repositories;
+
+public interface PersistenceContextRepository {
+    /**
+     * Detaches every entity of the current persistence context. With open-in-view the context lives as long as the
+     * request, so code saving many chunks in one request calls this after each chunk has been flushed or committed.
+     */
+    void clearPersistenceContext();
+}
@@ -0,0 +1,14 @@
+package ru.hogwarts.school.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+public class PersistenceContextRepositoryImpl implements PersistenceContextRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void clearPersistenceContext() {
+        entityManager.clear();
+    }
+}
@@ -1,22 +1,62 @@
 package ru.hogwarts.school.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.config.HibernateCacheConfig;
+import ru.hogwarts.school.dto.AgeGroup;
+import ru.hogwarts.school.dto.StudentDtoResponse;
 import ru.hogwarts.school.model.Student;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, PersistenceContextRepository {
+    /**
+     * Reads the row rather than the second-level cache entry, whose version may be outdated, and refreshes the entry.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHE_MODE, value = "REFRESH"))
+    Optional<Student> findCurrentById(long id);
+
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = HibernateCacheConfig.STUDENT_QUERIES_REGION)})
     Collection<Student> findByAge(int age);
 
     Collection<Student> findAllByAgeBetween(int minAge, int maxAge);
 
-    @Query(value = "SELECT COUNT(*) AS total FROM student", nativeQuery = true)
-    Integer getTotalNumberOfStudents();
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDtoResponse(s.id, s.name, s.age, COALESCE(f.id, 0L)) " +
+            "FROM Student s LEFT JOIN s.faculty f WHERE s.id IN :ids")
+    List<StudentDtoResponse> findStudentDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDtoResponse(s.id, s.name, s.age, COALESCE(f.id, 0L)) " +
+            "FROM Student s LEFT JOIN s.faculty f WHERE s.id > :afterId ORDER BY s.id")
+    List<StudentDtoResponse> findStudentDtosAfter(@Param("afterId") long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDtoResponse(s.id, s.name, s.age, COALESCE(f.id, 0L)) " +
+            "FROM Student s LEFT JOIN s.faculty f ORDER BY s.id")
+    Stream<StudentDtoResponse> streamAllStudentDtos();
+
+    @Query("SELECT s.name FROM Student s WHERE s.name LIKE :#{escape(#prefix)}% ESCAPE :#{escapeCharacter()}")
+    List<String> findNamesStartingWith(@Param("prefix") String prefix);
+
+    /**
+     * Served by a range scan of the student_name_pattern index.
+     */
+    @Query("SELECT DISTINCT s.name FROM Student s WHERE s.name LIKE :#{escape(#prefix)}% ESCAPE :#{escapeCharacter()} ORDER BY s.name")
+    List<String> findDistinctNamesStartingWith(@Param("prefix") String prefix, Limit limit);
+
+    @Query("SELECT s.name FROM Student s")
+    List<String> findAllNames();
 
-    @Query(value = "SELECT AVG(age) AS average_age FROM student", nativeQuery = true)
-    Double getAverageAgeOfStudents();
+    @Query("SELECT new ru.hogwarts.school.dto.AgeGroup(s.age, COUNT(s)) FROM Student s GROUP BY s.age")
+    List<AgeGroup> countByAge();
 
     @Query(value = "SELECT * FROM student ORDER BY id DESC LIMIT 5", nativeQuery = true)
     List<Student> getLatestFiveOfStudents();
@@ -0,0 +1,187 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.repositories.AvatarRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Content-addressed storage for avatar files. A file is stored once under its SHA-256 in two levels of
+ * sharded directories ({dir}/ab/cd/abcd...), so identical uploads share one file. Writes go to a temporary file
+ * that is renamed into place, and a file is deleted only when no avatar row and no upload in flight refers to it.
+ */
+@Component
+public class AvatarFileStore {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path rootDir;
+    private final Path tmpDir;
+    private final AvatarRepository avatarRepository;
+    // ReentrantLock rather than monitors: release() queries the database and deletes files while holding the lock,
+    // which would pin a virtual thread to its carrier inside synchronized
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<String, Integer> pendingReferences = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(AvatarFileStore.class);
+
+    public AvatarFileStore(@Value("${avatars.dir.path}") String avatarDir, AvatarRepository avatarRepository) {
+        this.rootDir = Path.of(avatarDir);
+        this.tmpDir = rootDir.resolve("tmp");
+        this.avatarRepository = avatarRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Stores the content and registers a pending reference to it, which has to be dropped with
+     * {@link #completeUpload(String)} once the avatar row referring to the file is committed or rolled back.
+     */
+    public StoredFile store(InputStream content) throws IOException {
+        return store(content, null);
+    }
+
+    /**
+     * Same as {@link #store(InputStream)}, but every byte written to the file is also written to {@code copy},
+     * so the caller gets the content without reading the file again.
+     */
+    public StoredFile store(InputStream content, OutputStream copy) throws IOException {
+        logger.info("Method invoked to store avatar file.");
+        Files.createDirectories(tmpDir);
+        Path tempFile = Files.createTempFile(tmpDir, "upload-", ".tmp");
+        MessageDigest digest = newDigest();
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(tempFile, WRITE);
+             OutputStream os = new DigestOutputStream(Channels.newOutputStream(channel), digest)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                os.write(buffer, 0, read);
+                if (copy != null) {
+                    copy.write(buffer, 0, read);
+                }
+                size += read;
+            }
+            channel.force(true);
+        } catch (IOException ioException) {
+            Files.deleteIfExists(tempFile);
+            throw ioException;
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path target = resolve(hash);
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            pendingReferences.merge(hash, 1, Integer::sum);
+            try {
+                if (Files.exists(target)) {
+                    logger.debug("Avatar file with the same content is already stored");
+                    Files.delete(tempFile);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tempFile, target, ATOMIC_MOVE);
+                }
+            } catch (FileAlreadyExistsException alreadyExists) {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ioException) {
+                pendingReferences.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+                Files.deleteIfExists(tempFile);
+                throw ioException;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new StoredFile(target, hash, size);
+    }
+
+    public void completeUpload(String hash) {
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            pendingReferences.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the stored file if neither a committed avatar nor an upload in flight refers to it anymore.
+     */
+    public void release(String hash) {
+        logger.info("Method invoked to release stored avatar file.");
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            if (pendingReferences.containsKey(hash) || avatarRepository.countByContentHash(hash) > 0) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(resolve(hash));
+            } catch (IOException ioException) {
+                logger.error("IOException when deleting unreferenced avatar file " + hash);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path resolve(String hash) {
+        return rootDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private ReentrantLock lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    }
+
+    public static class StoredFile {
+        private final Path path;
+        private final String hash;
+        private final long size;
+
+        public StoredFile(Path path, String hash, long size) {
+            this.path = path;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package ru.hogwarts.school.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.AvatarPreviewInfo;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps recently served previews in memory in two parts: the variant list of each student's avatar, and the bytes
+ * of each variant keyed by its row id. A request is resolved against the cached variant list to the exact variant it
+ * would get from the database, so clients with different Accept headers share the bytes of the same variant.
+ * The bytes are bounded by their total size rather than by the number of entries; with avatars.preview.cache.off-heap
+ * they are kept in direct buffers outside the Java heap.
+ * <p>
+ * Variant rows are never updated, only replaced, so cached bytes cannot go stale. A variant list can: it is stored
+ * only if no invalidation of the student happened since {@link #generation(long)} was read before loading it.
+ */
+@Component
+public class AvatarPreviewCache implements MeterBinder {
+
+    private final Cache<Long, List<AvatarPreviewInfo>> variants;
+    private final Cache<Long, CachedPreview> previews;
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+    private final boolean offHeap;
+
+    public AvatarPreviewCache(@Value("${avatars.preview.cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${avatars.preview.cache.max-students:10000}") long maxStudents,
+                              @Value("${avatars.preview.cache.off-heap:false}") boolean offHeap) {
+        this.offHeap = offHeap;
+        this.variants = Caffeine.newBuilder()
+                .maximumSize(maxStudents)
+                .recordStats()
+                .build();
+        this.previews = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Long, CachedPreview>weigher((id, preview) -> preview.getSize())
+                .recordStats()
+                .build();
+    }
+
+    public long generation(long studentId) {
+        return generations.getOrDefault(studentId, 0L);
+    }
+
+    public List<AvatarPreviewInfo> getVariants(long studentId) {
+        return variants.getIfPresent(studentId);
+    }
+
+    /**
+     * Stores the variant list unless the student has been invalidated since the generation was read. The check and
+     * the write run inside compute, which {@link #invalidate(long)} goes through as well.
+     */
+    public void putVariants(long studentId, long generation, List<AvatarPreviewInfo> studentVariants) {
+        variants.asMap().compute(studentId, (id, current) ->
+                generation == generation(studentId) ? List.copyOf(studentVariants) : current);
+    }
+
+    public CachedPreview get(long previewId) {
+        return previews.getIfPresent(previewId);
+    }
+
+    public CachedPreview put(long previewId, String mediaType, byte[] data) {
+        ByteBuffer buffer;
+        if (offHeap) {
+            buffer = ByteBuffer.allocateDirect(data.length).put(data).flip();
+        } else {
+            buffer = ByteBuffer.wrap(data);
+        }
+        CachedPreview preview = new CachedPreview(mediaType, buffer);
+        previews.put(previewId, preview);
+        return preview;
+    }
+
+    /**
+     * Drops the variant list of the student. The bytes of its old variants are no longer reachable and are left to
+     * the size bound.
+     */
+    public void invalidate(long studentId) {
+        variants.asMap().compute(studentId, (id, current) -> {
+            generations.merge(studentId, 1L, Long::sum);
+            return null;
+        });
+    }
+
+    public void invalidateAll() {
+        variants.asMap().keySet().forEach(this::invalidate);
+        previews.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, previews, "avatarPreviews");
+        CaffeineCacheMetrics.monitor(registry, variants, "avatarPreviewVariants");
+        Gauge.builder("avatar.preview.cache.bytes", previews,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Bytes held by the avatar preview cache")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public static class CachedPreview {
+        private final String mediaType;
+        private final ByteBuffer data;
+
+        private CachedPreview(String mediaType, ByteBuffer data) {
+            this.mediaType = mediaType;
+            this.data = data;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public int getSize() {
+            return data.capacity();
+        }
+
+        public byte[] getData() {
+            if (data.hasArray()) {
+                return data.array();
+            }
+            byte[] bytes = new byte[data.capacity()];
+            data.duplicate().get(bytes);
+            return bytes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CachedPreview that)) return false;
+            return Objects.equals(mediaType, that.mediaType) && Objects.equals(data, that.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mediaType, data);
+        }
+    }
+}
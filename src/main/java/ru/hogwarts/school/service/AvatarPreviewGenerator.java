@@ -0,0 +1,196 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.AvatarPreview;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates avatar previews off the upload request path. The pool and its queue are bounded: a task that does not fit
+ * into a full queue is never run by the submitting thread, its avatar is marked as failed instead.
+ * <p>
+ * Every configured width no larger than the original is rendered once per configured format. Images with an alpha
+ * channel are written as PNG instead of JPEG, and formats without an ImageIO writer on the classpath
+ * (WebP needs a plugin) are skipped.
+ */
+@Component
+public class AvatarPreviewGenerator {
+
+    private final AvatarPreviewService avatarPreviewService;
+    private final AvatarPreviewCache avatarPreviewCache;
+    private final ThreadPoolExecutor executor;
+    private final int[] widths;
+    private final List<String> formats;
+    private final float quality;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private static final Logger logger = LoggerFactory.getLogger(AvatarPreviewGenerator.class);
+
+    public AvatarPreviewGenerator(AvatarPreviewService avatarPreviewService, AvatarPreviewCache avatarPreviewCache,
+                                  @Value("${avatars.preview.widths:48,100,256}") int[] widths,
+                                  @Value("${avatars.preview.formats:jpeg}") List<String> formats,
+                                  @Value("${avatars.preview.quality:0.85}") float quality,
+                                  @Value("${avatars.preview.threads:2}") int threads,
+                                  @Value("${avatars.preview.queue-capacity:100}") int queueCapacity,
+                                  @Value("${avatars.preview.max-attempts:3}") int maxAttempts,
+                                  @Value("${avatars.preview.retry-delay-ms:200}") long retryDelayMillis) {
+        this.avatarPreviewService = avatarPreviewService;
+        this.avatarPreviewCache = avatarPreviewCache;
+        this.widths = Arrays.stream(widths).sorted().toArray();
+        this.formats = formats.stream()
+                .filter(format -> {
+                    boolean supported = ImageIO.getImageWritersByFormatName(format).hasNext();
+                    if (!supported) {
+                        logger.warn("No ImageIO writer for avatar preview format " + format + ", skipping it");
+                    }
+                    return supported;
+                })
+                .toList();
+        this.quality = quality;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-preview-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Schedules generation from the uploaded bytes when they are still in memory, so the stored file is not read back.
+     * The content hash ties the task to its upload: once the avatar is replaced, whatever the task produces is dropped.
+     */
+    public void submit(long avatarId, String contentHash, long studentId, Path filePath, byte[] content) {
+        logger.info("Method invoked to schedule generation of the avatar previews.");
+        try {
+            executor.execute(() -> generate(avatarId, contentHash, studentId, filePath, content));
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            logger.warn("Preview queue is full, marking previews of avatar id = " + avatarId + " as failed");
+            avatarPreviewService.markFailed(avatarId, contentHash);
+        }
+    }
+
+    private void generate(long avatarId, String contentHash, long studentId, Path filePath, byte[] content) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                if (avatarPreviewService.savePreviews(avatarId, contentHash, generatePreviews(filePath, content))) {
+                    avatarPreviewCache.invalidate(studentId);
+                }
+                return;
+            } catch (IOException | RuntimeException exception) {
+                logger.warn("Attempt " + attempt + " to generate previews for avatar id = " + avatarId + " failed", exception);
+            }
+            if (attempt == maxAttempts) {
+                break;
+            }
+            try {
+                Thread.sleep(retryDelayMillis * attempt);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        logger.error("Giving up on generating previews for avatar id = " + avatarId);
+        avatarPreviewService.markFailed(avatarId, contentHash);
+    }
+
+    private List<AvatarPreview> generatePreviews(Path path, byte[] content) throws IOException {
+        logger.info("Method invoked to generate small versions of the avatar for DB.");
+        BufferedImage image;
+        if (content != null) {
+            image = ImageIO.read(new ByteArrayInputStream(content));
+        } else {
+            try (InputStream is = Files.newInputStream(path);
+                 BufferedInputStream bis = new BufferedInputStream(is, 1024)) {
+                image = ImageIO.read(bis);
+            }
+        }
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + path);
+        }
+
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        Set<String> targetFormats = new LinkedHashSet<>();
+        for (String format : formats) {
+            targetFormats.add(hasAlpha && format.equals("jpeg") ? "png" : format);
+        }
+        int[] targetWidths = Arrays.stream(widths).filter(width -> width <= image.getWidth()).toArray();
+        if (targetWidths.length == 0) {
+            targetWidths = new int[]{image.getWidth()};
+        }
+
+        List<AvatarPreview> previews = new ArrayList<>();
+        for (int width : targetWidths) {
+            BufferedImage scaled = scale(image, width, hasAlpha);
+            for (String format : targetFormats) {
+                previews.add(new AvatarPreview(null, width, "image/" + format, encode(scaled, format)));
+            }
+        }
+        return previews;
+    }
+
+    private BufferedImage scale(BufferedImage image, int width, boolean hasAlpha) {
+        int height = Math.max(1, image.getHeight() * width / image.getWidth());
+        logger.debug("Calculated new height of the small avatar");
+        BufferedImage preview = new BufferedImage(width, height,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics2D = preview.createGraphics();
+        graphics2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics2D.drawImage(image, 0, 0, width, height, null);
+        graphics2D.dispose();
+        return preview;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            if (param.getCompressionType() == null) {
+                param.setCompressionType(param.getCompressionTypes()[0]);
+            }
+            param.setCompressionQuality(quality);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,90 @@
+package ru.hogwarts.school.service;
+
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.dto.AvatarPreviewInfo;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarPreview;
+import ru.hogwarts.school.model.PreviewStatus;
+import ru.hogwarts.school.repositories.AvatarPreviewRepository;
+import ru.hogwarts.school.repositories.AvatarRepository;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@Transactional
+public class AvatarPreviewService {
+
+    private final AvatarPreviewRepository avatarPreviewRepository;
+    private final AvatarRepository avatarRepository;
+    private static final Logger logger = LoggerFactory.getLogger(AvatarPreviewService.class);
+
+    public AvatarPreviewService(AvatarPreviewRepository avatarPreviewRepository, AvatarRepository avatarRepository) {
+        this.avatarPreviewRepository = avatarPreviewRepository;
+        this.avatarRepository = avatarRepository;
+    }
+
+    /**
+     * Runs in a transaction of its own: the generator may be called from the callback of an upload transaction
+     * that has already committed. The previews are written only if the avatar still holds the content they were
+     * generated from; the status update comes first, so its row lock keeps a newer upload out until the commit.
+     *
+     * @return false if the avatar has been replaced and the previews were discarded
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean savePreviews(long avatarId, String contentHash, List<AvatarPreview> previews) {
+        logger.info("Method invoked to save generated avatar previews.");
+        if (avatarRepository.updatePreviewStatus(avatarId, contentHash, PreviewStatus.READY) == 0) {
+            logger.info("Avatar id = " + avatarId + " has been replaced, discarding its outdated previews");
+            return false;
+        }
+        Avatar avatar = avatarRepository.getReferenceById(avatarId);
+        avatarPreviewRepository.deleteByAvatarId(avatarId);
+        previews.forEach(preview -> preview.setAvatar(avatar));
+        avatarPreviewRepository.saveAll(previews);
+        return true;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void markFailed(long avatarId, String contentHash) {
+        logger.info("Method invoked to mark avatar preview generation as failed.");
+        avatarRepository.updatePreviewStatus(avatarId, contentHash, PreviewStatus.FAILED);
+    }
+
+    public List<AvatarPreviewInfo> findPreviewInfos(long avatarId) {
+        logger.info("Method invoked to find avatar preview variants.");
+        return avatarPreviewRepository.findInfoByAvatarId(avatarId);
+    }
+
+    public AvatarPreview findPreview(long previewId) {
+        logger.info("Method invoked to load avatar preview.");
+        return avatarPreviewRepository.findById(previewId).orElse(null);
+    }
+
+    /**
+     * Picks the variant whose width is closest to the requested one among the media types the client accepts,
+     * falling back to all variants when none is acceptable. Equally close variants are ordered by size.
+     * Only the metadata of the variants is compared; the blob of the chosen one is loaded afterwards.
+     */
+    public AvatarPreviewInfo selectPreview(List<AvatarPreviewInfo> previews, int width, List<MediaType> acceptedMediaTypes) {
+        List<AvatarPreviewInfo> acceptablePreviews = previews.stream()
+                .filter(preview -> isAcceptable(preview.getMediaType(), acceptedMediaTypes))
+                .toList();
+        return (acceptablePreviews.isEmpty() ? previews : acceptablePreviews).stream()
+                .min(Comparator.<AvatarPreviewInfo>comparingInt(preview -> Math.abs(preview.getWidth() - width))
+                        .thenComparingInt(AvatarPreviewInfo::getDataSize))
+                .orElse(null);
+    }
+
+    private boolean isAcceptable(String mediaType, List<MediaType> acceptedMediaTypes) {
+        if (acceptedMediaTypes.isEmpty()) {
+            return true;
+        }
+        MediaType previewMediaType = MediaType.parseMediaType(mediaType);
+        return acceptedMediaTypes.stream().anyMatch(accepted -> accepted.includes(previewMediaType));
+    }
+}
@@ -4,71 +4,235 @@ import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarBatchItemResponse;
+import ru.hogwarts.school.dto.AvatarDtoResponse;
+import ru.hogwarts.school.dto.AvatarPreviewInfo;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarPreview;
+import ru.hogwarts.school.model.PreviewStatus;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repositories.AvatarRepository;
+import ru.hogwarts.school.util.PageToken;
+import ru.hogwarts.school.util.SizeLimitedInputStream;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.*;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @Service
 @Transactional
 public class AvatarService {
 
-    @Value("${avatars.dir.path}")
-    private String avatarDir;
+    @Value("${avatars.preview.default-width:100}")
+    private int defaultPreviewWidth;
+
+    @Value("${avatars.upload.max-file-size:307200}")
+    private long maxFileSize;
+
+    @Value("${avatars.batch.max-items:50000}")
+    private int maxBatchItems;
+
+    @Value("${avatars.batch.chunk-size:1000}")
+    private int batchChunkSize;
 
     private final AvatarRepository avatarRepository;
     private final StudentService studentService;
+    private final AvatarPreviewGenerator avatarPreviewGenerator;
+    private final AvatarPreviewService avatarPreviewService;
+    private final AvatarPreviewCache avatarPreviewCache;
+    private final AvatarFileStore avatarFileStore;
+    private final TransactionRunner transactionRunner;
     private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
 
-    public AvatarService(AvatarRepository avatarRepository, StudentService studentService) {
+    public AvatarService(AvatarRepository avatarRepository, StudentService studentService,
+                         AvatarPreviewGenerator avatarPreviewGenerator, AvatarPreviewService avatarPreviewService,
+                         AvatarPreviewCache avatarPreviewCache, AvatarFileStore avatarFileStore,
+                         TransactionRunner transactionRunner) {
         this.avatarRepository = avatarRepository;
         this.studentService = studentService;
+        this.avatarPreviewGenerator = avatarPreviewGenerator;
+        this.avatarPreviewService = avatarPreviewService;
+        this.avatarPreviewCache = avatarPreviewCache;
+        this.avatarFileStore = avatarFileStore;
+        this.transactionRunner = transactionRunner;
     }
 
-    public void uploadAvatar(long studentId, MultipartFile file) {
+    /**
+     * Streams the upload into the file store once: the size limit is enforced while reading, the hash is computed
+     * on the way to disk, and the bytes kept in memory (at most the size limit) give the image dimensions and are
+     * handed over to the preview generator, so the stored file is never read back.
+     *
+     * @return the saved avatar or null if the student does not exist
+     */
+    public Avatar uploadAvatar(long studentId, InputStream content, String mediaType)
+            throws SizeLimitedInputStream.LimitExceededException {
         logger.info("Method invoked to upload avatar.");
         Student student = studentService.getStudent(studentId);
+        if (student == null) {
+            return null;
+        }
 
-        Path filePath = Path.of(avatarDir, studentId + "." + getExtension(file.getOriginalFilename()));
+        UploadItem item = new UploadItem(null, studentId, mediaType);
         try {
-            Files.createDirectories(filePath.getParent());
-            Files.deleteIfExists(filePath);
+            storeItem(item, content, true);
+        } catch (SizeLimitedInputStream.LimitExceededException limitExceededException) {
+            throw limitExceededException;
         } catch (IOException ioException) {
-            logger.error("Exception when creating directories for uploaded avatar");
+            logger.error("IOException when uploading avatar file");
+            throw new UncheckedIOException(ioException);
         }
 
-        try (InputStream is = file.getInputStream();
-             OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             BufferedOutputStream bos = new BufferedOutputStream(os, 1024)
-        ) {
-            bis.transferTo(bos);
+        Avatar avatar = findAvatar(studentId);
+        assignAvatar(item, avatar, student);
+        avatarRepository.save(avatar);
+        studentService.saveAvatarReferences(List.of(student));
+        finishAfterCompletion(List.of(item));
+        return avatar;
+    }
+
+    /**
+     * Uploads avatars of many students at once. Every part is either a single image or a zip archive of images, each
+     * named {studentId}.{ext}. Parts and zip entries are streamed one by one into the file store outside of any
+     * transaction. The avatar rows are then saved in chunks of avatars.batch.chunk-size items, each chunk in its own
+     * transaction with its lookups bound to at most that many ids, so a large batch stays under the bind parameter
+     * limit of the database and holds no long transaction. A chunk that fails is reported per item and the other
+     * chunks are kept. Previews are generated afterwards on the bounded preview pool. Reading stops at
+     * avatars.batch.max-items files, which is reported by one extra result without a file name.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public List<AvatarBatchItemResponse> uploadAvatars(List<MultipartFile> files) {
+        logger.info("Method invoked to upload a batch of avatars.");
+        List<UploadItem> items = new ArrayList<>();
+        boolean limitExceeded = false;
+        try {
+            files:
+            for (MultipartFile file : files) {
+                if (isZip(file)) {
+                    try (ZipInputStream zis = new ZipInputStream(file.getInputStream())) {
+                        ZipEntry entry;
+                        while ((entry = zis.getNextEntry()) != null) {
+                            if (!entry.isDirectory()) {
+                                if (items.size() == maxBatchItems) {
+                                    limitExceeded = true;
+                                    break files;
+                                }
+                                String mediaType = MediaTypeFactory.getMediaType(entry.getName())
+                                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+                                items.add(storeBatchItem(entry.getName(), mediaType, zis));
+                            }
+                        }
+                    }
+                } else {
+                    if (items.size() == maxBatchItems) {
+                        limitExceeded = true;
+                        break;
+                    }
+                    try (InputStream is = file.getInputStream()) {
+                        items.add(storeBatchItem(file.getOriginalFilename(), file.getContentType(), is));
+                    }
+                }
+            }
         } catch (IOException ioException) {
-            logger.error("IOException when uploading avatar file");
+            logger.error("IOException when reading batch of avatars");
+            finishAfterCompletion(items);
+            throw new UncheckedIOException(ioException);
         }
 
-        Avatar avatar = findAvatar(studentId);
-        avatar.setStudent(student);
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(file.getSize());
-        avatar.setMediaType(file.getContentType());
-        avatar.setData(generateSmallAvatarForDB(filePath));
-        student.setAvatar(avatar);
+        Set<Long> studentIds = new HashSet<>();
+        for (UploadItem item : items) {
+            if (item.error == null && !studentIds.add(item.studentId)) {
+                item.error = "Duplicate student id in batch";
+            }
+        }
+        for (int from = 0; from < items.size(); from += batchChunkSize) {
+            List<UploadItem> chunk = items.subList(from, Math.min(items.size(), from + batchChunkSize));
+            try {
+                transactionRunner.run(() -> saveBatchChunk(chunk));
+                // the chunk is committed, keep it from piling up in the request-wide persistence context
+                avatarRepository.clearPersistenceContext();
+            } catch (DataAccessException | TransactionException exception) {
+                logger.warn("Failed to save avatars of batch items from " + (from + 1) + " to " + (from + chunk.size()));
+                for (UploadItem item : chunk) {
+                    if (item.error == null) {
+                        item.error = "Could not save avatar";
+                    }
+                    finishUpload(item, false);
+                }
+            }
+        }
 
-        avatarRepository.save(avatar);
-        studentService.editStudent(student);
+        List<AvatarBatchItemResponse> results = new ArrayList<>(items.stream()
+                .map(item -> new AvatarBatchItemResponse(item.fileName, item.studentId, item.error == null, item.error))
+                .toList());
+        if (limitExceeded) {
+            logger.warn("Batch of avatars has more than " + maxBatchItems + " files, the rest was not read");
+            results.add(new AvatarBatchItemResponse(null, null, false,
+                    "Too many files in batch, only the first " + maxBatchItems + " were processed"));
+        }
+        return results;
+    }
+
+    private void saveBatchChunk(List<UploadItem> chunk) {
+        Set<Long> studentIds = new HashSet<>();
+        for (UploadItem item : chunk) {
+            if (item.error == null) {
+                studentIds.add(item.studentId);
+            }
+        }
+        Map<Long, Student> students = new HashMap<>();
+        Map<Long, Avatar> avatars = new HashMap<>();
+        if (!studentIds.isEmpty()) {
+            studentService.getStudents(studentIds).forEach(student -> students.put(student.getId(), student));
+            avatarRepository.findAllByStudentIdIn(studentIds).forEach(avatar -> avatars.put(avatar.getStudent().getId(), avatar));
+        }
+
+        List<Avatar> changedAvatars = new ArrayList<>();
+        List<Student> changedStudents = new ArrayList<>();
+        for (UploadItem item : chunk) {
+            if (item.error != null) {
+                continue;
+            }
+            Student student = students.get(item.studentId);
+            if (student == null) {
+                logger.warn("Trying to upload avatar of a student that does not exist, student id = " + item.studentId);
+                item.error = "Student not found";
+                continue;
+            }
+            Avatar avatar = avatars.getOrDefault(item.studentId, new Avatar());
+            assignAvatar(item, avatar, student);
+            changedAvatars.add(avatar);
+            changedStudents.add(student);
+        }
+        avatarRepository.saveAll(changedAvatars);
+        studentService.saveAvatarReferences(changedStudents);
+        finishAfterCompletion(chunk);
     }
 
     public Avatar findAvatar(long id) {
@@ -76,36 +240,204 @@ public class AvatarService {
         return avatarRepository.findByStudentId(id).orElseGet(Avatar::new);
     }
 
-    private String getExtension(String fileName) {
-        logger.info("Method invoked to get extension of the avatar file.");
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
+    /**
+     * Serves the preview without touching the database when the variant list of the student and the bytes of the
+     * variant the request resolves to are both cached.
+     */
+    public AvatarPreviewCache.CachedPreview getCachedPreview(long studentId, Integer width,
+                                                             List<MediaType> acceptedMediaTypes) {
+        List<AvatarPreviewInfo> variants = avatarPreviewCache.getVariants(studentId);
+        if (variants == null) {
+            return null;
+        }
+        AvatarPreviewInfo variant = avatarPreviewService.selectPreview(variants,
+                width == null ? defaultPreviewWidth : width, acceptedMediaTypes);
+        return variant == null ? null : avatarPreviewCache.get(variant.getId());
+    }
+
+    public AvatarPreviewCache.CachedPreview findPreview(long studentId, Avatar avatar, Integer width,
+                                                        List<MediaType> acceptedMediaTypes) {
+        logger.info("Method invoked to get avatar preview.");
+        long generation = avatarPreviewCache.generation(studentId);
+        List<AvatarPreviewInfo> variants = avatarPreviewService.findPreviewInfos(avatar.getId());
+        avatarPreviewCache.putVariants(studentId, generation, variants);
+        AvatarPreviewInfo variant = avatarPreviewService.selectPreview(variants,
+                width == null ? defaultPreviewWidth : width, acceptedMediaTypes);
+        if (variant == null) {
+            return null;
+        }
+        AvatarPreview preview = avatarPreviewService.findPreview(variant.getId());
+        if (preview == null) {
+            return null;
+        }
+        return avatarPreviewCache.put(preview.getId(), preview.getMediaType(), preview.getData());
     }
 
-    private byte[] generateSmallAvatarForDB(Path path) {
-        logger.info("Method invoked to generate small version of the avatar for DB.");
-        try (InputStream is = Files.newInputStream(path);
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            BufferedImage image = ImageIO.read(bis);
+    public String getETag(Avatar avatar, long lastModified) {
+        if (avatar.getContentHash() != null) {
+            return "\"" + avatar.getContentHash() + "\"";
+        }
+        return "\"" + Long.toHexString(avatar.getFileSize()) + "-" + Long.toHexString(lastModified) + "\"";
+    }
 
-            int height = image.getHeight() / (image.getWidth() / 100);
-            logger.debug("Calculated new height of the small avatar");
-            BufferedImage preview = new BufferedImage(100, height, image.getType());
-            Graphics2D graphics2D = preview.createGraphics();
-            graphics2D.drawImage(image, 0, 0, 100, height, null);
-            graphics2D.dispose();
+    private UploadItem storeBatchItem(String fileName, String mediaType, InputStream content) throws IOException {
+        Long studentId = parseStudentId(fileName);
+        UploadItem item = new UploadItem(fileName, studentId, mediaType);
+        if (studentId == null) {
+            item.error = "File name must be {studentId}.{ext}";
+        } else {
+            try {
+                storeItem(item, content, false);
+            } catch (SizeLimitedInputStream.LimitExceededException limitExceededException) {
+                logger.warn("Trying to upload avatar file that is too big in batch: file name = " + fileName);
+                item.error = "File is too big";
+            }
+        }
+        return item;
+    }
 
-            ImageIO.write(preview, getExtension(path.getFileName().toString()), baos);
-            return baos.toByteArray();
+    /**
+     * Only a single upload keeps a copy of its bytes for the preview generator. Batch items are not held in memory:
+     * their dimensions come from the stored file, of which the image reader reads no more than the header.
+     */
+    private void storeItem(UploadItem item, InputStream content, boolean keepContent) throws IOException {
+        ByteArrayOutputStream copy = keepContent ? new ByteArrayOutputStream() : null;
+        item.storedFile = avatarFileStore.store(new SizeLimitedInputStream(content, maxFileSize), copy);
+        if (keepContent) {
+            item.content = copy.toByteArray();
+        }
+        Object source = keepContent ? new ByteArrayInputStream(item.content) : item.storedFile.getPath().toFile();
+        try (ImageInputStream iis = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(iis, true, true);
+                    item.width = reader.getWidth(0);
+                    item.height = reader.getHeight(0);
+                } finally {
+                    reader.dispose();
+                }
+            } else {
+                logger.warn("Uploaded avatar is not a readable image, student id = " + item.studentId);
+            }
         } catch (IOException ioException) {
-            logger.error("IOException when generating small avatar for DB");
+            logger.warn("Could not read dimensions of uploaded avatar, student id = " + item.studentId);
+        }
+    }
+
+    private Long parseStudentId(String fileName) {
+        if (fileName == null) {
             return null;
         }
+        String name = fileName.substring(fileName.lastIndexOf('/') + 1);
+        int dot = name.indexOf('.');
+        try {
+            return Long.parseLong(dot < 0 ? name : name.substring(0, dot));
+        } catch (NumberFormatException numberFormatException) {
+            return null;
+        }
+    }
+
+    private boolean isZip(MultipartFile file) {
+        String contentType = file.getContentType();
+        String fileName = file.getOriginalFilename();
+        return "application/zip".equals(contentType) || "application/x-zip-compressed".equals(contentType)
+                || (fileName != null && fileName.toLowerCase().endsWith(".zip"));
     }
 
-    public List<Avatar> getAvatarPage(int page, int size) {
+    private void assignAvatar(UploadItem item, Avatar avatar, Student student) {
+        item.avatar = avatar;
+        item.previousHash = avatar.getContentHash();
+        item.previousFilePath = avatar.getFilePath();
+        avatar.setStudent(student);
+        avatar.setFilePath(item.storedFile.getPath().toString());
+        avatar.setContentHash(item.storedFile.getHash());
+        avatar.setFileSize(item.storedFile.getSize());
+        avatar.setWidth(item.width);
+        avatar.setHeight(item.height);
+        avatar.setMediaType(item.mediaType);
+        avatar.setPreviewStatus(PreviewStatus.PENDING);
+        student.setAvatar(avatar);
+    }
+
+    private void finishAfterCompletion(List<UploadItem> items) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            items.forEach(item -> finishUpload(item, true));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                items.forEach(item -> finishUpload(item, true));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    items.forEach(item -> finishUpload(item, false));
+                }
+            }
+        });
+    }
+
+    private void finishUpload(UploadItem item, boolean committed) {
+        if (item.storedFile == null || item.finished) {
+            return;
+        }
+        item.finished = true;
+        String hash = item.storedFile.getHash();
+        avatarFileStore.completeUpload(hash);
+        if (!committed || item.avatar == null) {
+            avatarFileStore.release(hash);
+            return;
+        }
+        if (item.previousHash != null && !item.previousHash.equals(hash)) {
+            avatarFileStore.release(item.previousHash);
+        } else if (item.previousHash == null && item.previousFilePath != null) {
+            // avatars uploaded before the content-addressed store were kept as {avatarDir}/{studentId}.{ext}
+            try {
+                Files.deleteIfExists(Path.of(item.previousFilePath));
+            } catch (IOException ioException) {
+                logger.error("IOException when deleting previous avatar file " + item.previousFilePath);
+            }
+        }
+        avatarPreviewCache.invalidate(item.studentId);
+        avatarPreviewGenerator.submit(item.avatar.getId(), hash, item.studentId, item.storedFile.getPath(),
+                item.content);
+    }
+
+    public PageDtoResponse<AvatarDtoResponse> getAvatarsAfter(long afterId, int limit) {
+        logger.info("Method invoked to get page of uploaded avatars after a cursor");
+        List<AvatarDtoResponse> avatars = new ArrayList<>(avatarRepository.findAvatarInfosAfter(afterId, Limit.of(limit + 1)));
+        String next = PageToken.next(avatars, limit, AvatarDtoResponse::getId);
+        return new PageDtoResponse<>(avatars, next);
+    }
+
+    public List<AvatarDtoResponse> getAvatarPage(int page, int size) {
         logger.info("Method invoked to get page of uploaded avatars");
         PageRequest pageRequest = PageRequest.of(page - 1, size);
-        return avatarRepository.findAll(pageRequest).getContent();
+        return avatarRepository.findAvatarInfos(pageRequest);
+    }
+
+    private static class UploadItem {
+        private final String fileName;
+        private final Long studentId;
+        private final String mediaType;
+        private AvatarFileStore.StoredFile storedFile;
+        private byte[] content;
+        private Integer width;
+        private Integer height;
+        private Avatar avatar;
+        private String previousHash;
+        private String previousFilePath;
+        private String error;
+        private boolean finished;
+
+        private UploadItem(String fileName, Long studentId, String mediaType) {
+            this.fileName = fileName;
+            this.studentId = studentId;
+            this.mediaType = mediaType;
+        }
     }
 }
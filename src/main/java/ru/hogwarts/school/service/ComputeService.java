@@ -0,0 +1,65 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.dto.ComputeDtoResponse;
+import ru.hogwarts.school.model.SumStrategy;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Sums 1..n with the chosen strategy, so the payoff of parallelism can be measured on the cores we deploy to.
+ * FORK_JOIN_POOL runs the parallel stream inside a task of a dedicated pool, which makes the stream split onto that
+ * pool: request traffic then cannot starve the common pool that PARALLEL_STREAM and the rest of the JVM share.
+ */
+@Service
+public class ComputeService {
+
+    private final ForkJoinPool pool;
+    private static final Logger logger = LoggerFactory.getLogger(ComputeService.class);
+
+    public ComputeService(@Value("${compute.parallelism:0}") int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs the computation warmups times untimed, then once more measured with System.nanoTime.
+     */
+    public ComputeDtoResponse sum(long n, SumStrategy strategy, int warmups) {
+        logger.info("Method invoked to compute the sum of the first natural numbers.");
+        for (int i = 0; i < warmups; i++) {
+            sum(n, strategy);
+        }
+        long start = System.nanoTime();
+        long sum = sum(n, strategy);
+        long elapsedNanos = System.nanoTime() - start;
+        logger.info("Sum of the first " + n + " natural numbers with " + strategy + " took " + elapsedNanos + " ns");
+        return new ComputeDtoResponse(sum, n, strategy, getParallelism(strategy), elapsedNanos);
+    }
+
+    public long sum(long n, SumStrategy strategy) {
+        return switch (strategy) {
+            case SEQUENTIAL -> LongStream.rangeClosed(1, n).sum();
+            case PARALLEL_STREAM -> LongStream.rangeClosed(1, n).parallel().sum();
+            case FORK_JOIN_POOL -> pool.submit(() -> LongStream.rangeClosed(1, n).parallel().sum()).join();
+            case CLOSED_FORM -> n * (n + 1) / 2;
+        };
+    }
+
+    public int getParallelism(SumStrategy strategy) {
+        return switch (strategy) {
+            case SEQUENTIAL, CLOSED_FORM -> 1;
+            case PARALLEL_STREAM -> ForkJoinPool.getCommonPoolParallelism();
+            case FORK_JOIN_POOL -> pool.getParallelism();
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -2,21 +2,33 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.hogwarts.school.dto.FacultyDtoIn;
 import ru.hogwarts.school.dto.FacultyDtoInWithId;
 import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.FacultyDtoResponseV2;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repositories.FacultyRepository;
 import ru.hogwarts.school.util.FacultyDTOMapper;
+import ru.hogwarts.school.util.PageToken;
 import ru.hogwarts.school.util.StudentDTOMapper;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.LongStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class FacultyService {
@@ -27,6 +39,9 @@ public class FacultyService {
     private final StudentDTOMapper studentDTOMapper;
     private static final Logger logger = LoggerFactory.getLogger(FacultyService.class);
 
+    @Value("${faculties.search.trigram:false}")
+    private boolean trigramSearch;
+
     public FacultyService(FacultyRepository facultyRepository, FacultyDTOMapper facultyDTOMapper,
                           StudentService studentService, StudentDTOMapper studentDTOMapper) {
         this.facultyRepository = facultyRepository;
@@ -40,14 +55,24 @@ public class FacultyService {
         return facultyDTOMapper.facultyToDtoOut(facultyRepository.save(facultyDTOMapper.dtoInToFaculty(facultyDtoIn)));
     }
 
-    public void removeFaculty(long id) {
+    /**
+     * Returns false when there is no faculty with the id. As for students, the current row is read and deleted with
+     * its version in one transaction; a concurrent edit makes it fail with an OptimisticLockingFailureException.
+     */
+    @Transactional
+    public boolean removeFaculty(long id) {
         logger.info("Method invoked to remove faculty.");
-        facultyRepository.deleteById(id);
+        Faculty faculty = facultyRepository.findCurrentById(id).orElse(null);
+        if (faculty == null) {
+            return false;
+        }
+        facultyRepository.delete(faculty);
+        return true;
     }
 
     public void clearAll() {
         logger.info("Method invoked to remove all faculties.");
-        facultyRepository.deleteAll();
+        facultyRepository.deleteAllInBatch();
     }
 
     public Faculty getFaculty(long id) {
@@ -60,14 +85,30 @@ public class FacultyService {
         return facultyDTOMapper.facultyToDtoOut(facultyRepository.findById(id).orElse(null));
     }
 
-    public Faculty editFaculty(Faculty faculty) {
-        logger.info("Method invoked to edit faculty.");
-        return facultyRepository.save(faculty);
+    public FacultyDtoResponseV2 getFacultyDtoOutV2(long id) {
+        logger.info("Method invoked to get faculty DTO of version 2.");
+        return facultyDTOMapper.facultyToDtoOutV2(facultyRepository.findById(id).orElse(null));
     }
 
+    /**
+     * Changes name and color of the faculty and returns null when there is no faculty with the id. The current row is
+     * read rather than the second-level cache entry, so an outdated entry cannot fail the edit. A version in the
+     * request that is not the current one fails with an OptimisticLockingFailureException, and so does an edit
+     * committed in between, which the versioned UPDATE finds by its row count.
+     */
+    @Transactional
     public FacultyDtoResponse editFaculty(FacultyDtoInWithId facultyDtoInWithId) {
         logger.info("Method invoked to edit faculty and return faculty DTO.");
-        return facultyDTOMapper.facultyToDtoOut(facultyRepository.save(facultyDTOMapper.dtoInWithIdToFaculty(facultyDtoInWithId)));
+        Faculty faculty = facultyRepository.findCurrentById(facultyDtoInWithId.getId()).orElse(null);
+        if (faculty == null) {
+            return null;
+        }
+        if (facultyDtoInWithId.getVersion() != null && facultyDtoInWithId.getVersion() != faculty.getVersion()) {
+            throw new OptimisticLockingFailureException("Faculty " + faculty.getId() + " has been changed");
+        }
+        faculty.setName(facultyDtoInWithId.getName());
+        faculty.setColor(facultyDtoInWithId.getColor());
+        return facultyDTOMapper.facultyToDtoOut(facultyRepository.saveAndFlush(faculty));
     }
 
     public List<FacultyDtoResponse> getAllFaculties() {
@@ -75,6 +116,30 @@ public class FacultyService {
         return facultyRepository.findAll().stream().map(facultyDTOMapper::facultyToDtoOut).toList();
     }
 
+    public List<FacultyDtoResponseV2> getAllFacultiesV2() {
+        logger.info("Method invoked to get all faculties of version 2.");
+        return facultyRepository.findAll().stream().map(facultyDTOMapper::facultyToDtoOutV2).toList();
+    }
+
+    public PageDtoResponse<FacultyDtoResponse> getFacultiesPage(long afterId, int limit) {
+        logger.info("Method invoked to get page of faculties.");
+        List<Long> ids = new ArrayList<>(facultyRepository.findIdsAfter(afterId, Limit.of(limit + 1)));
+        String next = PageToken.next(ids, limit, Long::longValue);
+        if (ids.isEmpty()) {
+            return new PageDtoResponse<>(List.of(), next);
+        }
+        // ids are paged first: a fetch join of the students cannot be limited in SQL
+        List<FacultyDtoResponse> faculties = facultyRepository.findByIdInOrderByIdAsc(ids).stream()
+                .map(facultyDTOMapper::facultyToDtoOut)
+                .toList();
+        return new PageDtoResponse<>(faculties, next);
+    }
+
+    /**
+     * The result may come from the query cache, whose faculties take their students from the collection cache;
+     * the transaction lets a collection evicted by a student's move be loaded again.
+     */
+    @Transactional(readOnly = true)
     public List<FacultyDtoResponse> filterByColor(String color) {
         logger.info("Method invoked to get faculties by color.");
         return facultyRepository.findByColor(color).stream().map(facultyDTOMapper::facultyToDtoOut).toList();
@@ -82,9 +147,46 @@ public class FacultyService {
 
     public List<FacultyDtoResponse> getFacultiesByColorOrName(String request) {
         logger.info("Method invoked to get faculties by color or name.");
-        return facultyRepository.findByColorIgnoreCaseOrNameIgnoreCase(request, request).stream().map(facultyDTOMapper::facultyToDtoOut).toList();
+        return facultyRepository.findByColorOrNameIgnoreCase(request).stream().map(facultyDTOMapper::facultyToDtoOut).toList();
+    }
+
+    /**
+     * Returns at most limit faculties whose name or color matches the query, best matches first. With
+     * faculties.search.trigram the search runs on the Postgres pg_trgm indexes and also finds misspelt names;
+     * otherwise it falls back to substring matching that works on any database.
+     */
+    public List<FacultyDtoResponse> searchFaculties(String query, int limit) {
+        logger.info("Method invoked to search faculties.");
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        String escaped = escapeLike(normalized);
+        List<Long> ids = trigramSearch
+                ? facultyRepository.searchIdsBySimilarity(normalized, escaped + "%", limit)
+                : facultyRepository.searchIdsByPattern(normalized, escaped + "%", "%" + escaped + "%", Limit.of(limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // ids are ranked first: a fetch join of the students cannot be limited in SQL
+        Map<Long, Faculty> faculties = new HashMap<>();
+        for (Faculty faculty : facultyRepository.findByIdInOrderByIdAsc(ids)) {
+            faculties.put(faculty.getId(), faculty);
+        }
+        return ids.stream()
+                .map(faculties::get)
+                .filter(Objects::nonNull)
+                .map(facultyDTOMapper::facultyToDtoOut)
+                .toList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
+    /**
+     * Moves the student to the faculty in one transaction that writes only student.faculty_id and the version.
+     * The faculty row is not touched, so enrolments of different students never conflict; two concurrent changes
+     * of the same student fail with an OptimisticLockingFailureException instead of overwriting each other.
+     */
+    @Transactional
     public FacultyDtoResponse addStudentToFaculty(long studentId, long facultyId) {
         logger.info("Method invoked to add student to faculty.");
         Faculty faculty = getFaculty(facultyId);
@@ -92,10 +194,29 @@ public class FacultyService {
         if (faculty == null || student == null) {
             return null;
         }
-        faculty.addStudent(student);
         student.setFaculty(faculty);
-        editFaculty(faculty);
-        studentService.editStudent(student);
+        // the students are read after the flush, so the response includes the new one
+        facultyRepository.flush();
+        return facultyDTOMapper.facultyToDtoOut(faculty);
+    }
+
+    /**
+     * Moves all the students to the faculty in one transaction, the updates going out in JDBC batches. Nothing is
+     * changed and null is returned when the faculty or any of the students does not exist.
+     */
+    @Transactional
+    public FacultyDtoResponse addStudentsToFaculty(Collection<Long> studentIds, long facultyId) {
+        logger.info("Method invoked to add students to faculty.");
+        Faculty faculty = getFaculty(facultyId);
+        if (faculty == null) {
+            return null;
+        }
+        List<Student> students = studentService.getStudents(studentIds);
+        if (students.size() != new HashSet<>(studentIds).size()) {
+            return null;
+        }
+        students.forEach(student -> student.setFaculty(faculty));
+        facultyRepository.flush();
         return facultyDTOMapper.facultyToDtoOut(faculty);
     }
 
@@ -104,29 +225,14 @@ public class FacultyService {
         return faculty.getStudents().stream().map(studentDTOMapper::studentToDtoOut).toList();
     }
 
+    public List<StudentDtoResponseV2> getStudentDtosV2(Faculty faculty) {
+        logger.info("Method invoked to get student DTOs of version 2 from faculty.");
+        return facultyDTOMapper.studentsToDtoOutV2(faculty.getStudents());
+    }
+
     public List<String> getFacultiesWithLongestNames() {
         logger.info("Method invoked to get faculties with the longest names");
-        Optional<Integer> maxLength = facultyRepository.findAll().stream()
-                .map(Faculty::getName)
-                .map(String::length)
-                .max(Integer::compare);
-
-        return facultyRepository.findAll().stream()
-                .map(Faculty::getName)
-                .filter(s -> s.length() == (maxLength.orElse(0)))
-                .collect(Collectors.toList());
-    }
-
-
-    public long getNumber() {
-        logger.info("Method invoked to get the sum of first million natural numbers");
-        long timeStart = System.currentTimeMillis();
-        long sum = LongStream.rangeClosed(1, 1_000_000)
-                .parallel()
-                .reduce(0, Long::sum);
-        long timeFinish = System.currentTimeMillis();
-        logger.info("Total time in milliseconds is: " + (timeFinish - timeStart));
-        return sum;
+        return facultyRepository.findLongestNames();
     }
 
 }
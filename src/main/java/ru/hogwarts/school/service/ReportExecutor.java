@@ -0,0 +1,95 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Fans report work out over a fixed pool or over virtual threads, one task per item, and hands the results back to
+ * the caller. The call returns only when every task is done: when the timeout expires, the caller is interrupted or a
+ * task fails, the tasks still queued or running are cancelled before the exception is thrown, so no work outlives
+ * the call.
+ */
+@Component
+public class ReportExecutor {
+
+    private final ExecutorService executor;
+
+    /**
+     * With virtualThreads every task gets a virtual thread of its own and the pool size is not used: blocking
+     * report work then costs no platform thread.
+     */
+    public ReportExecutor(@Value("${students.report.threads:8}") int threads,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("report-", 1).factory());
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "report-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Applies the task to every item in parallel. With ordered the results follow the order of the items; otherwise
+     * they come in the order the tasks complete. A failure is noticed as soon as the failed task completes, whatever
+     * the mode.
+     */
+    public <T, R> List<R> run(List<T> items, Function<? super T, ? extends R> task, boolean ordered, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CompletionService<R> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<R>, Integer> positions = new IdentityHashMap<>(items.size());
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                T item = items.get(i);
+                positions.put(completionService.submit(() -> task.apply(item)), i);
+            }
+            @SuppressWarnings("unchecked")
+            R[] inItemOrder = (R[]) new Object[ordered ? items.size() : 0];
+            List<R> inCompletionOrder = new ArrayList<>(ordered ? 0 : items.size());
+            for (int completed = 0; completed < items.size(); completed++) {
+                Future<R> future = completionService.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new TimeoutException("Report did not complete in " + timeout.toMillis() + " ms, "
+                            + (items.size() - completed) + " of " + items.size() + " tasks cancelled");
+                }
+                R result = future.get();
+                if (ordered) {
+                    inItemOrder[positions.get(future)] = result;
+                } else {
+                    inCompletionOrder.add(result);
+                }
+            }
+            return ordered ? Arrays.asList(inItemOrder) : inCompletionOrder;
+        } finally {
+            // a no-op for the completed tasks
+            positions.keySet().forEach(future -> future.cancel(true));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
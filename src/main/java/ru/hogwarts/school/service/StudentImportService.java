@@ -0,0 +1,83 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.dto.StudentDtoIn;
+import ru.hogwarts.school.dto.StudentImportDtoResponse;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.util.StudentDTOMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports students from a JSON array or NDJSON stream. Records are read one at a time and saved in chunks, each in its
+ * own transaction, so a bad chunk is reported and skipped without losing the chunks around it. Inside a chunk the
+ * inserts go out in JDBC batches and ids come from the pooled student sequence.
+ */
+@Service
+public class StudentImportService {
+
+    @Value("${students.import.chunk-size:1000}")
+    private int chunkSize;
+
+    private final StudentService studentService;
+    private final StudentDTOMapper studentDTOMapper;
+    private final ObjectMapper objectMapper;
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+
+    public StudentImportService(StudentService studentService, StudentDTOMapper studentDTOMapper, ObjectMapper objectMapper) {
+        this.studentService = studentService;
+        this.studentDTOMapper = studentDTOMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    public StudentImportDtoResponse importStudents(InputStream content) throws IOException {
+        logger.info("Method invoked to import students.");
+        StudentImportDtoResponse result = new StudentImportDtoResponse();
+        List<Student> chunk = new ArrayList<>(chunkSize);
+        long record = 0;
+        try (MappingIterator<StudentDtoIn> records = objectMapper.readerFor(StudentDtoIn.class).readValues(content)) {
+            while (records.hasNextValue()) {
+                chunk.add(studentDTOMapper.dtoInToStudent(records.nextValue()));
+                record++;
+                if (chunk.size() == chunkSize) {
+                    saveChunk(chunk, record, result);
+                }
+            }
+        } catch (JsonProcessingException jsonProcessingException) {
+            logger.warn("Malformed student record in import, record number = " + (record + 1));
+            saveChunk(chunk, record, result);
+            result.addError(new StudentImportDtoResponse.ChunkError(record + 1, record + 1,
+                    "Malformed record, import stopped: " + jsonProcessingException.getOriginalMessage()));
+            return result;
+        }
+        saveChunk(chunk, record, result);
+        return result;
+    }
+
+    private void saveChunk(List<Student> chunk, long lastRecord, StudentImportDtoResponse result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long firstRecord = lastRecord - chunk.size() + 1;
+        try {
+            studentService.addStudents(chunk);
+            result.setImported(result.getImported() + chunk.size());
+        } catch (DataAccessException dataAccessException) {
+            logger.warn("Failed to import students from record " + firstRecord + " to " + lastRecord);
+            result.setFailed(result.getFailed() + chunk.size());
+            result.addError(new StudentImportDtoResponse.ChunkError(firstRecord, lastRecord,
+                    dataAccessException.getMostSpecificCause().getMessage()));
+        }
+        chunk.clear();
+    }
+}
@@ -0,0 +1,98 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.repositories.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted in-memory set of student names for typeahead search: a prefix lookup is a seek in a skip list followed by
+ * a walk over the matches. Every name maps to the number of students who have it. StudentService reports every
+ * committed insert, rename and delete; the names are loaded from the database at startup and replaced by a fresh
+ * load periodically, like StudentStatistics.
+ */
+@Component
+public class StudentNameIndex {
+
+    private final StudentRepository studentRepository;
+    private volatile ConcurrentNavigableMap<String, Integer> names = new ConcurrentSkipListMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(StudentNameIndex.class);
+
+    public StudentNameIndex(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    public void added(String name) {
+        if (name != null) {
+            names.merge(name, 1, Integer::sum);
+        }
+    }
+
+    public void removed(String name) {
+        if (name != null) {
+            names.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public void renamed(String previousName, String name) {
+        if (previousName != null && previousName.equals(name)) {
+            return;
+        }
+        removed(previousName);
+        added(name);
+    }
+
+    public void cleared() {
+        names = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Returns at most limit distinct names starting with the prefix, in ascending order. Like the database query,
+     * the match is case-sensitive.
+     */
+    public List<String> startingWith(String prefix, int limit) {
+        List<String> found = new ArrayList<>(Math.min(limit, 16));
+        for (String name : names.tailMap(prefix).keySet()) {
+            if (found.size() == limit || !name.startsWith(prefix)) {
+                break;
+            }
+            found.add(name);
+        }
+        return found;
+    }
+
+    @PostConstruct
+    public void load() {
+        names = namesFrom(studentRepository.findAllNames());
+    }
+
+    @Scheduled(fixedDelayString = "${students.search.reconcile-interval-ms:60000}",
+            initialDelayString = "${students.search.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        logger.info("Method invoked to reconcile student name index with the database.");
+        ConcurrentNavigableMap<String, Integer> loaded = namesFrom(studentRepository.findAllNames());
+        if (!loaded.equals(names)) {
+            logger.warn("Student name index drifted from the database: names in memory = " + names.size()
+                    + ", names in database = " + loaded.size());
+        }
+        names = loaded;
+    }
+
+    private static ConcurrentNavigableMap<String, Integer> namesFrom(Collection<String> allNames) {
+        ConcurrentNavigableMap<String, Integer> loaded = new ConcurrentSkipListMap<>();
+        for (String name : allNames) {
+            if (name != null) {
+                loaded.merge(name, 1, Integer::sum);
+            }
+        }
+        return loaded;
+    }
+}
@@ -1,42 +1,117 @@
 package ru.hogwarts.school.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.dto.StudentDtoIn;
 import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
+import ru.hogwarts.school.dto.StudentStatsDtoResponse;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repositories.StudentRepository;
+import ru.hogwarts.school.util.PageToken;
 import ru.hogwarts.school.util.StudentDTOMapper;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.OptionalDouble;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 @Service
 public class StudentService {
 
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+
     private final StudentRepository studentRepository;
     private final StudentDTOMapper studentDTOMapper;
+    private final ObjectMapper objectMapper;
+    private final StudentStatistics studentStatistics;
+    private final StudentNameIndex studentNameIndex;
+    private final ReportExecutor reportExecutor;
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
 
-    public StudentService(StudentRepository studentRepository, StudentDTOMapper studentDTOMapper) {
+    @Value("${students.search.in-memory:true}")
+    private boolean inMemoryNameSearch;
+
+    @Value("${students.report.timeout:10s}")
+    private Duration reportTimeout;
+
+    public StudentService(StudentRepository studentRepository, StudentDTOMapper studentDTOMapper, ObjectMapper objectMapper,
+                          StudentStatistics studentStatistics, StudentNameIndex studentNameIndex,
+                          ReportExecutor reportExecutor) {
         this.studentRepository = studentRepository;
         this.studentDTOMapper = studentDTOMapper;
+        this.objectMapper = objectMapper;
+        this.studentStatistics = studentStatistics;
+        this.studentNameIndex = studentNameIndex;
+        this.reportExecutor = reportExecutor;
     }
 
     public StudentDtoResponse addStudent(StudentDtoIn studentDtoIn) {
         logger.info("Method invoked to create student.");
-        return studentDTOMapper.studentToDtoOut(studentRepository.save(studentDTOMapper.dtoInToStudent(studentDtoIn)));
+        Student student = studentRepository.save(studentDTOMapper.dtoInToStudent(studentDtoIn));
+        studentStatistics.added(student.getAge());
+        studentNameIndex.added(student.getName());
+        return studentDTOMapper.studentToDtoOut(student);
     }
 
-    public void removeStudent(long id) {
+    @Transactional
+    public List<Student> addStudents(List<Student> students) {
+        logger.info("Method invoked to create a chunk of students.");
+        List<Student> saved = studentRepository.saveAllAndFlush(students);
+        // the chunk is written, keep it from piling up in the request-wide persistence context of an import
+        studentRepository.clearPersistenceContext();
+        afterCommit(() -> saved.forEach(student -> {
+            studentStatistics.added(student.getAge());
+            studentNameIndex.added(student.getName());
+        }));
+        return saved;
+    }
+
+    /**
+     * Returns false when there is no student with the id. The current row is read and deleted with its version in
+     * one transaction, so an outdated cache entry cannot fail the delete, while an edit committed between the read
+     * and the DELETE makes it fail with an OptimisticLockingFailureException.
+     */
+    @Transactional
+    public boolean removeStudent(long id) {
         logger.info("Method invoked to remove student.");
-        studentRepository.deleteById(id);
+        Student student = studentRepository.findCurrentById(id).orElse(null);
+        if (student == null) {
+            return false;
+        }
+        studentRepository.delete(student);
+        afterCommit(() -> {
+            studentStatistics.removed(student.getAge());
+            studentNameIndex.removed(student.getName());
+        });
+        return true;
     }
 
     public void clearAll() {
         logger.info("Method invoked to delete all students.");
-        studentRepository.deleteAll();
+        studentRepository.deleteAllInBatch();
+        studentStatistics.cleared();
+        studentNameIndex.cleared();
     }
 
     public Student getStudent(Long id) {
@@ -44,20 +119,116 @@ public class StudentService {
         return studentRepository.findById(id).orElse(null);
     }
 
+    public List<Student> getStudents(Collection<Long> ids) {
+        logger.info("Method invoked to get students by ids.");
+        return studentRepository.findAllById(ids);
+    }
+
     public StudentDtoResponse getStudentDtoOut(Long id) {
         logger.info("Method invoked to get student DTO.");
         Student student = studentRepository.findById(id).orElse(null);
         return studentDTOMapper.studentToDtoOut(student);
     }
 
+    public StudentDtoResponseV2 getStudentDtoOutV2(Long id) {
+        logger.info("Method invoked to get student DTO of version 2.");
+        return studentDTOMapper.studentToDtoOutV2(studentRepository.findById(id).orElse(null));
+    }
+
+    /**
+     * Resolves all ids with one IN query projected straight into DTOs, so no faculty proxy is touched.
+     * The result follows the order of the requested ids; unknown ids are left out.
+     */
+    public List<StudentDtoResponse> getStudentsDtoOut(List<Long> ids) {
+        logger.info("Method invoked to get students DTO by ids.");
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, StudentDtoResponse> found = new HashMap<>();
+        for (StudentDtoResponse student : studentRepository.findStudentDtosByIdIn(new HashSet<>(ids))) {
+            found.put(student.getId(), student);
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
     public Student editStudent(Student student) {
         logger.info("Method invoked to edit student.");
-        return studentRepository.save(student);
+        Map<Long, StudentDtoResponse> previous = getPrevious(List.of(student.getId()));
+        Student saved = studentRepository.save(student);
+        afterCommit(() -> recordEdits(previous, List.of(student)));
+        return saved;
     }
 
+    /**
+     * Saves students whose avatar has been replaced. Name and age stay the same, so neither the previous state is
+     * read nor the statistics and the name index are touched.
+     */
+    public List<Student> saveAvatarReferences(Collection<Student> students) {
+        logger.info("Method invoked to save avatar references of students.");
+        return studentRepository.saveAll(students);
+    }
+
+    /**
+     * Changes name and age of the student and returns null when there is no student with the id. The current row is
+     * read rather than the second-level cache entry, so an outdated entry cannot fail the edit. A version in the
+     * request that is not the current one fails with an OptimisticLockingFailureException, and so does an edit
+     * committed in between, which the versioned UPDATE finds by its row count.
+     */
+    @Transactional
     public StudentDtoResponse editStudent(StudentDtoResponse studentDtoResponse) {
         logger.info("Method invoked to edit student and return DTO.");
-        return studentDTOMapper.studentToDtoOut(studentRepository.save(studentDTOMapper.dtoOutToStudent(studentDtoResponse)));
+        Student student = studentRepository.findCurrentById(studentDtoResponse.getId()).orElse(null);
+        if (student == null) {
+            return null;
+        }
+        if (studentDtoResponse.getVersion() != null && studentDtoResponse.getVersion() != student.getVersion()) {
+            throw new OptimisticLockingFailureException("Student " + student.getId() + " has been changed");
+        }
+        int previousAge = student.getAge();
+        String previousName = student.getName();
+        student.setName(studentDtoResponse.getName());
+        student.setAge(studentDtoResponse.getAge());
+        Student saved = studentRepository.saveAndFlush(student);
+        afterCommit(() -> {
+            studentStatistics.ageChanged(previousAge, saved.getAge());
+            studentNameIndex.renamed(previousName, saved.getName());
+        });
+        return studentDTOMapper.studentToDtoOut(saved);
+    }
+
+    private Map<Long, StudentDtoResponse> getPrevious(Collection<Long> ids) {
+        Map<Long, StudentDtoResponse> previous = new HashMap<>();
+        for (StudentDtoResponse student : studentRepository.findStudentDtosByIdIn(ids)) {
+            previous.put(student.getId(), student);
+        }
+        return previous;
+    }
+
+    private void recordEdits(Map<Long, StudentDtoResponse> previous, Collection<Student> students) {
+        for (Student student : students) {
+            StudentDtoResponse previousStudent = previous.get(student.getId());
+            if (previousStudent == null) {
+                // saving an unknown id inserts a new row
+                studentStatistics.added(student.getAge());
+                studentNameIndex.added(student.getName());
+            } else {
+                studentStatistics.ageChanged(previousStudent.getAge(), student.getAge());
+                studentNameIndex.renamed(previousStudent.getName(), student.getName());
+            }
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     public List<StudentDtoResponse> getAllStudents() {
@@ -65,6 +236,37 @@ public class StudentService {
         return studentRepository.findAll().stream().map(studentDTOMapper::studentToDtoOut).toList();
     }
 
+    public PageDtoResponse<StudentDtoResponse> getStudentsPage(long afterId, int limit) {
+        logger.info("Method invoked to get page of students.");
+        List<StudentDtoResponse> students = new ArrayList<>(studentRepository.findStudentDtosAfter(afterId, Limit.of(limit + 1)));
+        String next = PageToken.next(students, limit, StudentDtoResponse::getId);
+        return new PageDtoResponse<>(students, next);
+    }
+
+    /**
+     * Writes all students as NDJSON, one object per line. Rows come from a forward-only cursor read in fetch-size
+     * chunks and are projected straight into DTOs, so nothing piles up in the persistence context and memory stays
+     * flat however large the table is. The cursor needs the surrounding transaction to stay open on PostgreSQL.
+     */
+    @Transactional(readOnly = true)
+    public void exportStudents(OutputStream out) throws IOException {
+        logger.info("Method invoked to export all students.");
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        long count = 0;
+        try (Stream<StudentDtoResponse> students = studentRepository.streamAllStudentDtos()) {
+            Iterator<StudentDtoResponse> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+                if (++count % EXPORT_FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        generator.flush();
+        logger.debug("Exported " + count + " students");
+    }
+
     public List<StudentDtoResponse> filterStudentsByAge(int age) {
         logger.info("Method invoked to get students by age.");
         return studentRepository.findByAge(age).stream().map(studentDTOMapper::studentToDtoOut).toList();
@@ -75,14 +277,19 @@ public class StudentService {
         return studentRepository.findAllByAgeBetween(minAge, maxAge).stream().map(studentDTOMapper::studentToDtoOut).toList();
     }
 
-    public Integer getTotalNumberOfStudents() {
+    public Long getTotalNumberOfStudents() {
         logger.info("Method invoked to get total number of students.");
-        return studentRepository.getTotalNumberOfStudents();
+        return studentStatistics.getCount();
     }
 
     public Double getAverageAgeOfStudents() {
         logger.info("Method invoked to get average age  of students.");
-        return studentRepository.getAverageAgeOfStudents();
+        return studentStatistics.getAverageAge();
+    }
+
+    public StudentStatsDtoResponse getStudentStats() {
+        logger.info("Method invoked to get student statistics.");
+        return studentStatistics.getStats();
     }
 
     public List<StudentDtoResponse> getLatestFiveOfStudents() {
@@ -92,75 +299,47 @@ public class StudentService {
 
     public List<String> getStudentsStartingWithA() {
         logger.info("Method invoked to get all students' names that start with an \"A\".");
-        return studentRepository.findAll().stream()
-                .map(Student::getName)
-                .filter(name -> name.startsWith("A"))
+        // the prefix is matched by the database; sorting the few matches here keeps the Java string order
+        return studentRepository.findNamesStartingWith("A").stream()
                 .sorted()
                 .map(String::toUpperCase)
                 .toList();
     }
 
-    public Double getAverageAge() {
-        logger.info("Method invoked to get average age of students");
-        OptionalDouble average = studentRepository.findAll().stream()
-                .mapToDouble(Student::getAge)
-                .average();
-        return average.isPresent() ? average.getAsDouble() : 0;
-    }
-
-    public void printParallel() {
-        List<StudentDtoResponse> students = getAllStudents();
-        if (students.size() < 6) {
-            throw new RuntimeException("Not enough students in the database");
+    /**
+     * Typeahead search: at most limit distinct names starting with the prefix, in ascending order. The names come
+     * from StudentNameIndex, or from a prefix query on the student_name_pattern index when students.search.in-memory
+     * is off.
+     */
+    public List<String> searchStudentNames(String prefix, int limit) {
+        logger.info("Method invoked to search students' names by prefix.");
+        if (inMemoryNameSearch) {
+            return studentNameIndex.startingWith(prefix, limit);
         }
-        Thread thread1 = new Thread() {
-            @Override
-            public void start() {
-                System.out.println(students.get(2));
-                System.out.println(students.get(3));
-            }
-        };
-        Thread thread2 = new Thread() {
-            @Override
-            public void start() {
-                System.out.println(students.get(4));
-                System.out.println(students.get(5));
-            }
-        };
-
-        System.out.println(students.get(0));
-        thread1.start();
-        System.out.println(students.get(1));
-        thread2.start();
+        return studentRepository.findDistinctNamesStartingWith(prefix, Limit.of(limit));
     }
 
-    public void printSynchronized() {
-        List<StudentDtoResponse> students = getAllStudents();
-        if (students.size() < 6) {
-            throw new RuntimeException("Not enough students in the database");
-        }
-        Thread thread1 = new Thread() {
-            @Override
-            public void start() {
-                consoleOutput(students.get(2));
-                consoleOutput(students.get(3));
-            }
-        };
-        Thread thread2 = new Thread() {
-            @Override
-            public void start() {
-                consoleOutput(students.get(4));
-                consoleOutput(students.get(5));
-            }
-        };
-
-        consoleOutput(students.get(0));
-        thread1.start();
-        consoleOutput(students.get(1));
-        thread2.start();
+    public Double getAverageAge() {
+        logger.info("Method invoked to get average age of students");
+        Double averageAge = studentStatistics.getAverageAge();
+        return averageAge == null ? 0.0 : averageAge;
     }
 
-    private synchronized void consoleOutput(StudentDtoResponse output) {
-        System.out.println(output);
+    /**
+     * Report lines of the first limit students by id, rendered in parallel by ReportExecutor. With ordered the lines
+     * follow the ids, otherwise they come in the order they are rendered. Throws TimeoutException when the report
+     * takes longer than students.report.timeout; the unfinished work is cancelled.
+     */
+    public List<String> reportStudents(int limit, boolean ordered) throws TimeoutException {
+        logger.info("Method invoked to build a report of students.");
+        List<StudentDtoResponse> students = studentRepository.findStudentDtosAfter(0, Limit.of(limit));
+        try {
+            return reportExecutor.run(students, StudentDtoResponse::toString, ordered, reportTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the report of students", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build the report of students", e.getCause());
+        }
     }
 }
@@ -0,0 +1,124 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.AgeGroup;
+import ru.hogwarts.school.dto.StudentStatsDtoResponse;
+import ru.hogwarts.school.repositories.StudentRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Student count, age sum and age histogram kept in memory, so the statistics endpoints do not scan the table.
+ * StudentService reports every committed insert, age change and delete. The counters are loaded from the
+ * database at startup and replaced by a fresh load periodically, which corrects drift from writes that bypass
+ * the service or race with a reload.
+ */
+@Component
+public class StudentStatistics {
+
+    private final StudentRepository studentRepository;
+    private volatile Counters counters = new Counters();
+    private static final Logger logger = LoggerFactory.getLogger(StudentStatistics.class);
+
+    public StudentStatistics(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    public void added(int age) {
+        counters.add(age, 1);
+    }
+
+    public void removed(int age) {
+        counters.add(age, -1);
+    }
+
+    public void ageChanged(int previousAge, int age) {
+        if (previousAge == age) {
+            return;
+        }
+        Counters current = counters;
+        current.add(previousAge, -1);
+        current.add(age, 1);
+    }
+
+    public void cleared() {
+        counters = new Counters();
+    }
+
+    public long getCount() {
+        return counters.count.sum();
+    }
+
+    /**
+     * Returns null when there are no students, like AVG over an empty table.
+     */
+    public Double getAverageAge() {
+        Counters current = counters;
+        long count = current.count.sum();
+        if (count <= 0) {
+            return null;
+        }
+        return (double) current.ageSum.sum() / count;
+    }
+
+    public StudentStatsDtoResponse getStats() {
+        Counters current = counters;
+        Map<Integer, Long> histogram = new TreeMap<>();
+        current.ages.forEach((age, adder) -> {
+            long count = adder.sum();
+            if (count > 0) {
+                histogram.put(age, count);
+            }
+        });
+        long count = current.count.sum();
+        double averageAge = count > 0 ? (double) current.ageSum.sum() / count : 0.0;
+        return new StudentStatsDtoResponse(count, averageAge, histogram);
+    }
+
+    @PostConstruct
+    public void load() {
+        counters = countersFrom(studentRepository.countByAge());
+    }
+
+    @Scheduled(fixedDelayString = "${students.stats.reconcile-interval-ms:60000}",
+            initialDelayString = "${students.stats.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        logger.info("Method invoked to reconcile student statistics with the database.");
+        Counters loaded = countersFrom(studentRepository.countByAge());
+        long countInMemory = counters.count.sum();
+        long countInDatabase = loaded.count.sum();
+        if (countInMemory != countInDatabase) {
+            logger.warn("Student statistics drifted from the database: count in memory = " + countInMemory
+                    + ", count in database = " + countInDatabase);
+        }
+        counters = loaded;
+    }
+
+    private static Counters countersFrom(List<AgeGroup> ageGroups) {
+        Counters loaded = new Counters();
+        for (AgeGroup ageGroup : ageGroups) {
+            loaded.add(ageGroup.getAge(), ageGroup.getCount());
+        }
+        return loaded;
+    }
+
+    private static class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder ageSum = new LongAdder();
+        private final Map<Integer, LongAdder> ages = new ConcurrentHashMap<>();
+
+        private void add(int age, long delta) {
+            count.add(delta);
+            ageSum.add(age * delta);
+            ages.computeIfAbsent(age, key -> new LongAdder()).add(delta);
+        }
+    }
+}
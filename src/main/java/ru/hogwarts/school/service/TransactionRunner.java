@@ -0,0 +1,17 @@
+package ru.hogwarts.school.service;
+
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a piece of work in a transaction of its own. Lets a service that needs several transactions in one call, such
+ * as a batch saved in chunks, keep the work in private methods instead of calling itself through its proxy.
+ */
+@Component
+public class TransactionRunner {
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void run(Runnable work) {
+        work.run();
+    }
+}
@@ -3,13 +3,23 @@ package ru.hogwarts.school.util;
 import org.springframework.stereotype.Component;
 import ru.hogwarts.school.dto.FacultyDtoInWithId;
 import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.FacultyDtoResponseV2;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.dto.FacultyDtoIn;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.StudentService;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 @Component
 public class FacultyDTOMapper {
+    private static final Comparator<StudentDtoResponseV2> BY_ID = Comparator.comparingLong(StudentDtoResponseV2::id);
+
     StudentService studentService;
     StudentDTOMapper studentDTOMapper;
 
@@ -23,12 +33,35 @@ public class FacultyDTOMapper {
             return null;
         }
         FacultyDtoResponse facultyDtoResponse = new FacultyDtoResponse(faculty.getId(), faculty.getName(), faculty.getColor());
+        facultyDtoResponse.setVersion(faculty.getVersion());
         for (Student s : faculty.getStudents()) {
             facultyDtoResponse.addStudentDTO(studentDTOMapper.studentToDtoOut(s));
         }
         return facultyDtoResponse;
     }
 
+    /**
+     * The student DTOs go straight into an array of the collection's size, which is sorted in place and becomes the
+     * backing array of the returned list; nothing is hashed.
+     */
+    public FacultyDtoResponseV2 facultyToDtoOutV2(Faculty faculty) {
+        if (faculty == null) {
+            return null;
+        }
+        return new FacultyDtoResponseV2(faculty.getId(), faculty.getName(), faculty.getColor(), faculty.getVersion(),
+                studentsToDtoOutV2(faculty.getStudents()));
+    }
+
+    public List<StudentDtoResponseV2> studentsToDtoOutV2(Collection<Student> students) {
+        StudentDtoResponseV2[] studentDtos = new StudentDtoResponseV2[students.size()];
+        int i = 0;
+        for (Student s : students) {
+            studentDtos[i++] = studentDTOMapper.studentToDtoOutV2(s);
+        }
+        Arrays.sort(studentDtos, BY_ID);
+        return Collections.unmodifiableList(Arrays.asList(studentDtos));
+    }
+
     public Faculty dtoInToFaculty(FacultyDtoIn facultyDtoIn) {
         return new Faculty(facultyDtoIn.getName(), facultyDtoIn.getColor());
     }
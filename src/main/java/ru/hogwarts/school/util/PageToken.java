@@ -0,0 +1,52 @@
+package ru.hogwarts.school.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Opaque continuation token of keyset pagination. The token carries the id of the last returned row, and the next
+ * page is read with "id > last id ORDER BY id", which is a range scan on the primary key however deep the page is.
+ */
+public final class PageToken {
+    private static final byte VERSION = 1;
+
+    private PageToken() {
+    }
+
+    public static String encode(long lastId) {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES + 1).put(VERSION).putLong(lastId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @return the id after which the page starts, 0 for a missing token or null for a token that cannot be read
+     */
+    public static Long decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return 0L;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            if (buffer.remaining() != Long.BYTES + 1 || buffer.get() != VERSION) {
+                return null;
+            }
+            return buffer.getLong();
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return null;
+        }
+    }
+
+    /**
+     * Token of the page that follows {@code rows}, which were fetched with one row more than the page size,
+     * or null when there are no more rows. The extra row is removed from {@code rows}.
+     */
+    public static <T> String next(List<T> rows, int limit, ToLongFunction<T> id) {
+        if (rows.size() <= limit) {
+            return null;
+        }
+        rows.subList(limit, rows.size()).clear();
+        return encode(id.applyAsLong(rows.get(limit - 1)));
+    }
+}
@@ -2,6 +2,7 @@ package ru.hogwarts.school.util;
 
 import org.springframework.stereotype.Component;
 import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.dto.StudentDtoIn;
 import ru.hogwarts.school.repositories.FacultyRepository;
@@ -19,7 +20,17 @@ public class StudentDTOMapper {
             return null;
         }
         long id = student.getFaculty() == null ? 0 : student.getFaculty().getId();
-        return new StudentDtoResponse(student.getId(), student.getName(), student.getAge(), id);
+        StudentDtoResponse studentDtoResponse = new StudentDtoResponse(student.getId(), student.getName(), student.getAge(), id);
+        studentDtoResponse.setVersion(student.getVersion());
+        return studentDtoResponse;
+    }
+
+    public StudentDtoResponseV2 studentToDtoOutV2(Student student) {
+        if (student == null) {
+            return null;
+        }
+        long id = student.getFaculty() == null ? 0 : student.getFaculty().getId();
+        return new StudentDtoResponseV2(student.getId(), student.getName(), student.getAge(), id, student.getVersion());
     }
 
     public Student dtoInToStudent(StudentDtoIn studentDtoIn) {
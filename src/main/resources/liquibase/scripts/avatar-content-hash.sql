@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:7
+ALTER TABLE avatar ADD COLUMN content_hash VARCHAR(64);
+CREATE INDEX avatar_content_hash ON avatar (content_hash);
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:8
+ALTER TABLE avatar ADD COLUMN width INTEGER;
+ALTER TABLE avatar ADD COLUMN height INTEGER;
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:6
+ALTER TABLE avatar_preview ADD COLUMN data_size INTEGER NOT NULL DEFAULT 0;
+UPDATE avatar_preview SET data_size = length(data) WHERE data IS NOT NULL;
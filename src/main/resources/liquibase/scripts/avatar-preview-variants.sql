@@ -0,0 +1,18 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:4
+CREATE SEQUENCE avatar_preview_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE avatar_preview (
+    id BIGINT PRIMARY KEY,
+    avatar_id BIGINT NOT NULL REFERENCES avatar (id),
+    width INTEGER NOT NULL,
+    media_type VARCHAR(255),
+    data BYTEA
+);
+CREATE INDEX avatar_preview_avatar_id ON avatar_preview (avatar_id);
+
+-- changeset evasiliev:5
+INSERT INTO avatar_preview (id, avatar_id, width, media_type, data)
+SELECT nextval('avatar_preview_seq'), id, 100, media_type, lo_get(data) FROM avatar WHERE data IS NOT NULL;
+SELECT lo_unlink(data) FROM avatar WHERE data IS NOT NULL;
+ALTER TABLE avatar DROP COLUMN data;
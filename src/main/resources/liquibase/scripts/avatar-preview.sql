@@ -0,0 +1,4 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:3
+ALTER TABLE avatar ADD COLUMN preview_status VARCHAR(16);
@@ -0,0 +1,8 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:12
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX faculty_name_lower ON faculty (lower(name) text_pattern_ops);
+CREATE INDEX faculty_color_lower ON faculty (lower(color) text_pattern_ops);
+CREATE INDEX faculty_name_trgm ON faculty USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX faculty_color_trgm ON faculty USING gin (lower(color) gin_trgm_ops);
@@ -0,0 +1,5 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:10
+CREATE INDEX student_name_pattern ON student (name text_pattern_ops);
+CREATE INDEX faculty_name_length ON faculty (length(name));
@@ -0,0 +1,6 @@
+-- liquibase formatted sql
+
+-- changeset evasiliev:9
+CREATE SEQUENCE IF NOT EXISTS student_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE student_seq INCREMENT BY 50;
+SELECT setval('student_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM student), (SELECT last_value FROM student_seq)));
@@ -0,0 +1,594 @@
+package ru.hogwarts.school;
+
+import com.jayway.jsonpath.JsonPath;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.controller.AvatarController;
+import ru.hogwarts.school.dto.AvatarDtoResponse;
+import ru.hogwarts.school.dto.AvatarPreviewInfo;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarPreview;
+import ru.hogwarts.school.model.PreviewStatus;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repositories.AvatarPreviewRepository;
+import ru.hogwarts.school.repositories.AvatarRepository;
+import ru.hogwarts.school.repositories.FacultyRepository;
+import ru.hogwarts.school.repositories.StudentRepository;
+import ru.hogwarts.school.service.AvatarPreviewCache;
+import ru.hogwarts.school.service.AvatarService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ComponentScan(basePackages = "ru.hogwarts.school")
+@WebMvcTest(AvatarController.class)
+// failing preview tasks of one test must not keep calling the repository mocks while the next test stubs them
+@TestPropertySource(properties = {"avatars.dir.path=target/test-avatars", "avatars.preview.retry-delay-ms=0"})
+public class AvatarMVCTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private StudentRepository studentRepository;
+
+    @MockitoBean
+    private FacultyRepository facultyRepository;
+
+    @MockitoBean
+    private AvatarRepository avatarRepository;
+
+    @MockitoBean
+    private AvatarPreviewRepository avatarPreviewRepository;
+
+    @Autowired
+    private AvatarPreviewCache avatarPreviewCache;
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @TempDir
+    private Path tempDir;
+
+    private final byte[] fileContent = "0123456789abcdefghij".getBytes();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        avatarPreviewCache.invalidateAll();
+        Path filePath = Files.write(tempDir.resolve("1.png"), fileContent);
+        Avatar avatar = new Avatar(filePath.toString(), fileContent.length, MediaType.IMAGE_PNG_VALUE, null);
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        when(avatarRepository.updatePreviewStatus(anyLong(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    public void testDownloadAvatar() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_PNG_VALUE))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().bytes(fileContent));
+    }
+
+    @Test
+    public void testDownloadAvatar_withRange() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1")
+                        .header(HttpHeaders.RANGE, "bytes=10-14"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-14/" + fileContent.length))
+                .andExpect(content().bytes("abcde".getBytes()));
+    }
+
+    @Test
+    public void testDownloadAvatar_whenNotModified() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testUploadAvatar_generatesPreviewInBackground() throws Exception {
+        Student student = new Student(1, "Name", 12);
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        MockMultipartFile file = new MockMultipartFile("avatar", "avatar.png", MediaType.IMAGE_PNG_VALUE, createImage(200, 300));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/1")
+                        .file(file))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<List<AvatarPreview>> previews = ArgumentCaptor.captor();
+        verify(avatarPreviewRepository, timeout(5000)).saveAll(previews.capture());
+        verify(avatarRepository).updatePreviewStatus(anyLong(), any(), eq(PreviewStatus.READY));
+        Assertions.assertThat(previews.getValue())
+                .extracting(AvatarPreview::getWidth, AvatarPreview::getMediaType)
+                .containsExactly(tuple(48, MediaType.IMAGE_JPEG_VALUE), tuple(100, MediaType.IMAGE_JPEG_VALUE));
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(previews.getValue().get(1).getData()));
+        Assertions.assertThat(image.getWidth()).isEqualTo(100);
+        Assertions.assertThat(image.getHeight()).isEqualTo(150);
+    }
+
+    @Test
+    public void testUploadAvatar_whenReplacedBeforePreviewsAreSaved_discardsThem() throws Exception {
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(new Student(1, "Name", 12)));
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(avatarRepository.updatePreviewStatus(anyLong(), any(), any())).thenReturn(0);
+        byte[] content = createImage(100, 100);
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/1")
+                        .file(new MockMultipartFile("avatar", "avatar.png", MediaType.IMAGE_PNG_VALUE, content)))
+                .andExpect(status().isOk());
+
+        verify(avatarRepository, timeout(5000)).updatePreviewStatus(anyLong(), eq(hash), eq(PreviewStatus.READY));
+        verify(avatarPreviewRepository, times(0)).deleteByAvatarId(anyLong());
+        verify(avatarPreviewRepository, times(0)).saveAll(any());
+    }
+
+    @Test
+    public void testUploadAvatar_streamsRequestBody() throws Exception {
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(new Student(1, "Name", 12)));
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        byte[] content = createImage(120, 80);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/avatar/1")
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(content))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<Avatar> avatar = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(avatar.capture());
+        Assertions.assertThat(avatar.getValue())
+                .extracting(Avatar::getFileSize, Avatar::getWidth, Avatar::getHeight, Avatar::getMediaType)
+                .containsExactly((long) content.length, 120, 80, MediaType.IMAGE_PNG_VALUE);
+        // only the avatar reference of the student changes, its previous name and age are not read
+        verify(studentRepository, times(0)).findStudentDtosByIdIn(any());
+        verify(avatarRepository, timeout(5000)).updatePreviewStatus(anyLong(), any(), eq(PreviewStatus.READY));
+    }
+
+    @Test
+    public void testUploadAvatar_whenFileIsTooBig() throws Exception {
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(new Student(1, "Name", 12)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/avatar/1")
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(new byte[400 * 1024]))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/1")
+                        .file(new MockMultipartFile("avatar", "avatar.png", MediaType.IMAGE_PNG_VALUE, new byte[400 * 1024])))
+                .andExpect(status().isBadRequest());
+
+        verify(avatarRepository, times(0)).save(any(Avatar.class));
+    }
+
+    @Test
+    public void testUploadAvatar_whenStudentDoesNotExist() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/avatar/1")
+                        .contentType(MediaType.IMAGE_PNG)
+                        .content(createImage(10, 10)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testUploadAvatar_deduplicatesIdenticalContent() throws Exception {
+        when(studentRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(new Student(invocation.getArgument(0), "Name", 12)));
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        byte[] content = createImage(60, 60);
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        for (long studentId = 1; studentId <= 2; studentId++) {
+            mockMvc.perform(MockMvcRequestBuilders
+                            .multipart("/avatar/" + studentId)
+                            .file(new MockMultipartFile("avatar", "avatar.png", MediaType.IMAGE_PNG_VALUE, content)))
+                    .andExpect(status().isOk());
+        }
+
+        ArgumentCaptor<Avatar> avatars = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository, times(2)).save(avatars.capture());
+        Path expectedPath = Path.of("target/test-avatars", hash.substring(0, 2), hash.substring(2, 4), hash);
+        Assertions.assertThat(avatars.getAllValues())
+                .extracting(Avatar::getFilePath, Avatar::getContentHash, Avatar::getFileSize)
+                .containsOnly(tuple(expectedPath.toString(), hash, (long) content.length));
+        Assertions.assertThat(expectedPath).hasBinaryContent(content);
+    }
+
+    @Test
+    public void testUploadAvatar_releasesReplacedFile() throws Exception {
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(new Student(1, "Name", 12)));
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+        when(avatarRepository.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/1")
+                        .file(new MockMultipartFile("avatar", "avatar.png", MediaType.IMAGE_PNG_VALUE, createImage(70, 70))))
+                .andExpect(status().isOk());
+        ArgumentCaptor<Avatar> avatars = ArgumentCaptor.forClass(Avatar.class);
+        verify(avatarRepository).save(avatars.capture());
+        Avatar first = avatars.getValue();
+        Path firstPath = Path.of(first.getFilePath());
+        Assertions.assertThat(firstPath).exists();
+
+        Avatar stored = new Avatar(first.getFilePath(), first.getFileSize(), first.getMediaType(), null);
+        stored.setContentHash(first.getContentHash());
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(stored));
+        when(avatarRepository.countByContentHash(first.getContentHash())).thenReturn(0L);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/1")
+                        .file(new MockMultipartFile("avatar", "avatar.png", MediaType.IMAGE_PNG_VALUE, createImage(80, 80))))
+                .andExpect(status().isOk());
+
+        Assertions.assertThat(firstPath).doesNotExist();
+        Assertions.assertThat(Path.of(stored.getFilePath())).exists();
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + stored.getContentHash() + "\""));
+    }
+
+    @Test
+    public void testUploadAvatars_reportsResultPerItem() throws Exception {
+        Student student1 = new Student(1, "Name", 12);
+        Student student3 = new Student(3, "Other", 13);
+        when(studentRepository.findAllById(any())).thenReturn(List.of(student1, student3));
+        when(avatarRepository.findAllByStudentIdIn(any())).thenReturn(List.of());
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            int size = 64;
+            for (String name : List.of("photos/1.png", "2.png", "bad.png")) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(createImage(size++, 64));
+                zos.closeEntry();
+            }
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/batch")
+                        .file(new MockMultipartFile("avatars", "photos.zip", "application/zip", zip.toByteArray()))
+                        .file(new MockMultipartFile("avatars", "3.png", MediaType.IMAGE_PNG_VALUE, createImage(90, 90))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].studentId").value(1))
+                .andExpect(jsonPath("$[0].uploaded").value(true))
+                .andExpect(jsonPath("$[1].error").value("Student not found"))
+                .andExpect(jsonPath("$[2].uploaded").value(false))
+                .andExpect(jsonPath("$[3].fileName").value("3.png"))
+                .andExpect(jsonPath("$[3].uploaded").value(true));
+
+        ArgumentCaptor<List<Avatar>> avatars = ArgumentCaptor.captor();
+        verify(avatarRepository).saveAll(avatars.capture());
+        Assertions.assertThat(avatars.getValue())
+                .extracting(Avatar::getStudent, Avatar::getMediaType)
+                .containsExactly(tuple(student1, MediaType.IMAGE_PNG_VALUE), tuple(student3, MediaType.IMAGE_PNG_VALUE));
+        // batch items are not kept in memory; the dimensions are read from the stored files
+        Assertions.assertThat(avatars.getValue())
+                .extracting(Avatar::getWidth, Avatar::getHeight)
+                .containsExactly(tuple(64, 64), tuple(90, 90));
+        Assertions.assertThat(student1.getAvatar()).isSameAs(avatars.getValue().get(0));
+        verify(studentRepository, times(0)).findStudentDtosByIdIn(any());
+        verify(avatarRepository, timeout(5000).times(2)).updatePreviewStatus(anyLong(), any(), eq(PreviewStatus.READY));
+    }
+
+    @Test
+    public void testUploadAvatars_whenBatchIsAboveBindParameterLimit_looksUpIdsInChunks() throws Exception {
+        // PostgreSQL accepts at most 32767 bind parameters in one statement
+        int items = 33_000;
+        when(studentRepository.findAllById(any())).thenReturn(List.of());
+        when(avatarRepository.findAllByStudentIdIn(any())).thenReturn(List.of());
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            for (int i = 1; i <= items; i++) {
+                zos.putNextEntry(new ZipEntry(i + ".png"));
+                zos.write(i);
+                zos.closeEntry();
+            }
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/avatar/batch")
+                        .file(new MockMultipartFile("avatars", "photos.zip", "application/zip", zip.toByteArray())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(items)))
+                .andExpect(jsonPath("$[" + (items - 1) + "].error").value("Student not found"));
+
+        ArgumentCaptor<Iterable<Long>> studentIds = ArgumentCaptor.captor();
+        verify(studentRepository, times(33)).findAllById(studentIds.capture());
+        Assertions.assertThat(studentIds.getAllValues()).allSatisfy(ids -> Assertions.assertThat(ids).hasSize(1000));
+        ArgumentCaptor<Collection<Long>> avatarStudentIds = ArgumentCaptor.captor();
+        verify(avatarRepository, times(33)).findAllByStudentIdIn(avatarStudentIds.capture());
+        Assertions.assertThat(avatarStudentIds.getAllValues()).allSatisfy(ids -> Assertions.assertThat(ids).hasSize(1000));
+        verify(avatarRepository, times(33)).clearPersistenceContext();
+    }
+
+    @Test
+    public void testUploadAvatars_whenBatchHasTooManyFiles_stopsReading() throws Exception {
+        Student student1 = new Student(1, "Name", 12);
+        when(studentRepository.findAllById(any())).thenReturn(List.of(student1));
+        when(avatarRepository.findAllByStudentIdIn(any())).thenReturn(List.of());
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            for (int i = 1; i <= 5; i++) {
+                zos.putNextEntry(new ZipEntry(i + ".png"));
+                zos.write(createImage(40 + i, 40));
+                zos.closeEntry();
+            }
+        }
+        AvatarService target = AopTestUtils.getUltimateTargetObject(avatarService);
+        ReflectionTestUtils.setField(target, "maxBatchItems", 2);
+        try {
+            mockMvc.perform(MockMvcRequestBuilders
+                            .multipart("/avatar/batch")
+                            .file(new MockMultipartFile("avatars", "photos.zip", "application/zip", zip.toByteArray()))
+                            .file(new MockMultipartFile("avatars", "3.png", MediaType.IMAGE_PNG_VALUE, createImage(90, 90))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(3)))
+                    .andExpect(jsonPath("$[0].uploaded").value(true))
+                    .andExpect(jsonPath("$[1].error").value("Student not found"))
+                    .andExpect(jsonPath("$[2].fileName").doesNotExist())
+                    .andExpect(jsonPath("$[2].error").value("Too many files in batch, only the first 2 were processed"));
+        } finally {
+            ReflectionTestUtils.setField(target, "maxBatchItems", 50_000);
+        }
+    }
+
+    @Test
+    public void testDownloadPreview_whenPreviewIsPending() throws Exception {
+        Avatar avatar = new Avatar("1.png", 1, MediaType.IMAGE_PNG_VALUE, null);
+        avatar.setPreviewStatus(PreviewStatus.PENDING);
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void testDownloadPreview_picksClosestWidth() throws Exception {
+        Avatar avatar = new Avatar("1.png", 1, MediaType.IMAGE_PNG_VALUE, null);
+        avatar.setId(7);
+        avatar.setPreviewStatus(PreviewStatus.READY);
+        byte[] preview48 = createImage(48, 72);
+        byte[] preview100 = createImage(100, 150);
+        byte[] preview256 = createImage(256, 384);
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        mockPreviews(
+                new AvatarPreview(avatar, 48, MediaType.IMAGE_PNG_VALUE, preview48),
+                new AvatarPreview(avatar, 100, MediaType.IMAGE_PNG_VALUE, preview100),
+                new AvatarPreview(avatar, 256, MediaType.IMAGE_PNG_VALUE, preview256));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(preview100));
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview?w=200"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().bytes(preview256));
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview?w=40"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(preview48));
+    }
+
+    @Test
+    public void testDownloadPreview_prefersAcceptedMediaType() throws Exception {
+        Avatar avatar = new Avatar("1.png", 1, MediaType.IMAGE_PNG_VALUE, null);
+        avatar.setId(7);
+        avatar.setPreviewStatus(PreviewStatus.READY);
+        byte[] png = createImage(100, 150);
+        byte[] webp = new byte[]{1, 2, 3};
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        mockPreviews(
+                new AvatarPreview(avatar, 100, "image/webp", webp),
+                new AvatarPreview(avatar, 100, MediaType.IMAGE_PNG_VALUE, png));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview")
+                        .accept(MediaType.IMAGE_PNG))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(png));
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview")
+                        .header(HttpHeaders.ACCEPT, "image/webp,*/*"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/webp"))
+                .andExpect(content().bytes(webp));
+    }
+
+    @Test
+    public void testDownloadPreview_isServedFromCache() throws Exception {
+        Avatar avatar = new Avatar("1.png", 1, MediaType.IMAGE_PNG_VALUE, null);
+        avatar.setId(7);
+        avatar.setPreviewStatus(PreviewStatus.READY);
+        byte[] preview = createImage(100, 150);
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        mockPreviews(new AvatarPreview(avatar, 100, MediaType.IMAGE_PNG_VALUE, preview));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(MockMvcRequestBuilders
+                            .get("/avatar/1/preview"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(preview));
+        }
+        verify(avatarRepository, times(1)).findByStudentId(1);
+        verify(avatarPreviewRepository, times(1)).findInfoByAvatarId(7);
+
+        avatarPreviewCache.invalidate(1);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview"))
+                .andExpect(status().isOk());
+        verify(avatarRepository, times(2)).findByStudentId(1);
+    }
+
+    @Test
+    public void testDownloadPreview_sharesCachedVariantAcrossAcceptHeaders() throws Exception {
+        Avatar avatar = new Avatar("1.png", 1, MediaType.IMAGE_PNG_VALUE, null);
+        avatar.setId(7);
+        avatar.setPreviewStatus(PreviewStatus.READY);
+        byte[] preview = createImage(100, 150);
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        mockPreviews(new AvatarPreview(avatar, 100, MediaType.IMAGE_PNG_VALUE, preview));
+
+        for (String accept : List.of("image/png", "image/webp,image/*;q=0.8", "*/*", "image/avif,image/png")) {
+            mockMvc.perform(MockMvcRequestBuilders
+                            .get("/avatar/1/preview?w=90")
+                            .header(HttpHeaders.ACCEPT, accept))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(preview));
+        }
+        verify(avatarRepository, times(1)).findByStudentId(1);
+        verify(avatarPreviewRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testDownloadPreview_whenAcceptHeaderIsMalformed() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview")
+                        .header(HttpHeaders.ACCEPT, "image/"))
+                .andExpect(status().isNotAcceptable());
+        verify(avatarRepository, times(0)).findByStudentId(anyLong());
+    }
+
+    @Test
+    public void testDownloadPreview_whenPreviewDoesNotExist() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1/preview"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetAvatars() throws Exception {
+        AvatarDtoResponse avatar1 = new AvatarDtoResponse(1, 10L, "10.png", 100, MediaType.IMAGE_PNG_VALUE, PreviewStatus.READY);
+        AvatarDtoResponse avatar2 = new AvatarDtoResponse(2, 11L, "11.png", 200, MediaType.IMAGE_PNG_VALUE, PreviewStatus.PENDING);
+        when(avatarRepository.findAvatarInfos(PageRequest.of(0, 2))).thenReturn(List.of(avatar1, avatar2));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/list?page=1&size=2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].studentId").value(10))
+                .andExpect(jsonPath("$[1].previewStatus").value("PENDING"));
+    }
+
+    @Test
+    public void testGetAvatarsAfterCursor() throws Exception {
+        AvatarDtoResponse avatar1 = new AvatarDtoResponse(5, 10L, "10.png", 100, MediaType.IMAGE_PNG_VALUE, PreviewStatus.READY);
+        AvatarDtoResponse avatar2 = new AvatarDtoResponse(8, 11L, "11.png", 200, MediaType.IMAGE_PNG_VALUE, PreviewStatus.READY);
+        AvatarDtoResponse avatar3 = new AvatarDtoResponse(9, 12L, "12.png", 300, MediaType.IMAGE_PNG_VALUE, PreviewStatus.READY);
+        when(avatarRepository.findAvatarInfosAfter(0, Limit.of(3))).thenReturn(new ArrayList<>(List.of(avatar1, avatar2, avatar3)));
+        when(avatarRepository.findAvatarInfosAfter(8, Limit.of(3))).thenReturn(new ArrayList<>(List.of(avatar3)));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/list?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].id").value(8))
+                .andExpect(jsonPath("$.next").isNotEmpty())
+                .andReturn();
+        String next = JsonPath.read(result.getResponse().getContentAsString(), "$.next");
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/list?limit=2&after=" + next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(9))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    public void testDownloadAvatar_whenAvatarDoesNotExist() throws Exception {
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/avatar/1"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void mockPreviews(AvatarPreview... previews) {
+        List<AvatarPreviewInfo> infos = new ArrayList<>();
+        for (int i = 0; i < previews.length; i++) {
+            AvatarPreview preview = previews[i];
+            preview.setId(i + 1);
+            infos.add(new AvatarPreviewInfo(preview.getId(), preview.getWidth(), preview.getMediaType(), preview.getDataSize()));
+            when(avatarPreviewRepository.findById(preview.getId())).thenReturn(Optional.of(preview));
+        }
+        when(avatarPreviewRepository.findInfoByAvatarId(anyLong())).thenReturn(infos);
+    }
+
+    private byte[] createImage(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        return baos.toByteArray();
+    }
+}
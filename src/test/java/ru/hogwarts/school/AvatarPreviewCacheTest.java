@@ -0,0 +1,36 @@
+package ru.hogwarts.school;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.AvatarPreviewInfo;
+import ru.hogwarts.school.service.AvatarPreviewCache;
+
+import java.util.List;
+
+public class AvatarPreviewCacheTest {
+    private final AvatarPreviewCache avatarPreviewCache = new AvatarPreviewCache(1024, 100, false);
+    private final List<AvatarPreviewInfo> variants = List.of(new AvatarPreviewInfo(1, 48, "image/jpeg", 10));
+
+    @Test
+    public void testPutVariants_whenStudentWasInvalidatedWhileLoading_isDropped() {
+        long generation = avatarPreviewCache.generation(1);
+        avatarPreviewCache.invalidate(1);
+        avatarPreviewCache.putVariants(1, generation, variants);
+
+        Assertions.assertThat(avatarPreviewCache.getVariants(1)).isNull();
+
+        avatarPreviewCache.putVariants(1, avatarPreviewCache.generation(1), variants);
+        Assertions.assertThat(avatarPreviewCache.getVariants(1)).isEqualTo(variants);
+    }
+
+    @Test
+    public void testInvalidate_keepsOtherStudents() {
+        avatarPreviewCache.putVariants(1, avatarPreviewCache.generation(1), variants);
+        avatarPreviewCache.putVariants(2, avatarPreviewCache.generation(2), variants);
+
+        avatarPreviewCache.invalidate(1);
+
+        Assertions.assertThat(avatarPreviewCache.getVariants(1)).isNull();
+        Assertions.assertThat(avatarPreviewCache.getVariants(2)).isEqualTo(variants);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.hogwarts.school;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.service.AvatarPreviewCache;
+import ru.hogwarts.school.service.AvatarPreviewGenerator;
+import ru.hogwarts.school.service.AvatarPreviewService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class AvatarPreviewGeneratorTest {
+    private final AvatarPreviewService avatarPreviewService = mock(AvatarPreviewService.class);
+    private final AvatarPreviewGenerator avatarPreviewGenerator = new AvatarPreviewGenerator(avatarPreviewService,
+            new AvatarPreviewCache(1024 * 1024, 100, false), new int[]{48}, List.of("jpeg"), 0.85f, 1, 1, 3, 0);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        avatarPreviewGenerator.shutdown();
+    }
+
+    @Test
+    public void testSubmit_whenQueueIsFull_marksAvatarFailedWithoutGeneratingInline() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return true;
+        }).when(avatarPreviewService).savePreviews(eq(1L), eq("hash"), anyList());
+        byte[] content = createImage();
+
+        avatarPreviewGenerator.submit(1, "hash", 1, Path.of("1.png"), content);
+        started.await(5, TimeUnit.SECONDS);
+        avatarPreviewGenerator.submit(2, "hash", 2, Path.of("2.png"), content);
+        avatarPreviewGenerator.submit(3, "hash", 3, Path.of("3.png"), content);
+
+        verify(avatarPreviewService).markFailed(3, "hash");
+        verify(avatarPreviewService, never()).savePreviews(eq(3L), any(), anyList());
+
+        release.countDown();
+        verify(avatarPreviewService, timeout(5000)).savePreviews(eq(2L), eq("hash"), anyList());
+        verify(avatarPreviewService, never()).markFailed(1, "hash");
+        verify(avatarPreviewService, never()).markFailed(2, "hash");
+    }
+
+    @Test
+    public void testSubmit_whenGenerationKeepsFailing_marksAvatarFailed() {
+        avatarPreviewGenerator.submit(1, "hash", 1, Path.of("does-not-exist.png"), null);
+
+        verify(avatarPreviewService, timeout(5000)).markFailed(1, "hash");
+        verify(avatarPreviewService, never()).savePreviews(anyLong(), any(), anyList());
+    }
+
+    private byte[] createImage() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), "png", baos);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.hogwarts.school;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hogwarts.school.dto.FacultyDtoIn;
+import ru.hogwarts.school.dto.StudentDtoIn;
+import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class FacultyEnrolmentConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int FACULTIES = 4;
+    private static final int STUDENTS = 200;
+
+    @Autowired
+    private FacultyService facultyService;
+
+    @Autowired
+    private StudentService studentService;
+
+    private final AtomicInteger conflicts = new AtomicInteger();
+    private static final Logger logger = LoggerFactory.getLogger(FacultyEnrolmentConcurrencyTest.class);
+
+    @AfterEach
+    public void tearDown() {
+        studentService.clearAll();
+        facultyService.clearAll();
+    }
+
+    @Test
+    public void testConcurrentEnrolmentsAndRenames_loseNoUpdates() throws Exception {
+        List<Long> facultyIds = new ArrayList<>();
+        for (int i = 0; i < FACULTIES; i++) {
+            facultyIds.add(facultyService.addFaculty(new FacultyDtoIn("Concurrent" + i, "concurrent")).getId());
+        }
+        List<Long> studentIds = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            studentIds.add(studentService.addStudent(new StudentDtoIn("Student" + i, 20)).getId());
+        }
+
+        runEnrolmentsAndRenames(facultyIds, studentIds);
+    }
+
+    private void runEnrolmentsAndRenames(List<Long> facultyIds, List<Long> studentIds) throws Exception {
+        // every student is enrolled by one task and renamed by another, so both tasks race on the same row
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            long studentId = studentIds.get(i);
+            long facultyId = facultyIds.get(i % FACULTIES);
+            tasks.add(() -> retryOnConflict(() -> facultyService.addStudentToFaculty(studentId, facultyId)));
+            tasks.add(() -> retryOnConflict(() -> rename(studentId)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        logger.info("Ran " + tasks.size() + " enrolments and renames on " + THREADS + " threads in "
+                + elapsedNanos / 1_000_000 + " ms (" + tasks.size() * 1_000_000_000L / elapsedNanos
+                + " ops/s), retried " + conflicts.get() + " conflicts");
+
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = studentService.getStudent(studentIds.get(i));
+            Assertions.assertThat(student.getName()).isEqualTo("Renamed" + i);
+            Assertions.assertThat(student.getFaculty().getId()).isEqualTo(facultyIds.get(i % FACULTIES));
+        }
+        Map<Long, Long> studentsPerFaculty = studentService.getStudentsDtoOut(studentIds).stream()
+                .collect(Collectors.groupingBy(StudentDtoResponse::getFacultyId, Collectors.counting()));
+        Assertions.assertThat(studentsPerFaculty).hasSize(FACULTIES)
+                .allSatisfy((facultyId, count) -> Assertions.assertThat(count).isEqualTo(STUDENTS / FACULTIES));
+    }
+
+    private Void rename(long studentId) {
+        Student student = studentService.getStudent(studentId);
+        String index = student.getName().substring("Student".length());
+        StudentDtoResponse edited = new StudentDtoResponse();
+        edited.setId(studentId);
+        edited.setName("Renamed" + index);
+        edited.setAge(student.getAge());
+        edited.setVersion(student.getVersion());
+        studentService.editStudent(edited);
+        return null;
+    }
+
+    private Void retryOnConflict(Callable<?> task) throws Exception {
+        while (true) {
+            try {
+                task.call();
+                return null;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+            }
+        }
+    }
+}
@@ -14,6 +14,8 @@ import ru.hogwarts.school.controller.FacultyController;
 import ru.hogwarts.school.controller.StudentController;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.SumStrategy;
+import ru.hogwarts.school.repositories.AvatarPreviewRepository;
 import ru.hogwarts.school.repositories.AvatarRepository;
 import ru.hogwarts.school.repositories.FacultyRepository;
 import ru.hogwarts.school.repositories.StudentRepository;
@@ -22,8 +24,10 @@ import ru.hogwarts.school.util.FacultyDTOMapper;
 import ru.hogwarts.school.util.StudentDTOMapper;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -46,6 +50,9 @@ public class FacultyMVCTest {
     @MockitoBean
     private AvatarRepository avatarRepository;
 
+    @MockitoBean
+    private AvatarPreviewRepository avatarPreviewRepository;
+
     @MockitoSpyBean
     private FacultyService facultyService;
 
@@ -100,6 +107,28 @@ public class FacultyMVCTest {
                 .andExpect(jsonPath("$.color").value(color));
     }
 
+    @Test
+    public void testGetFacultyInfoV2_returnsStudentsOrderedById() throws Exception {
+        long id = 12;
+        Faculty faculty = new Faculty(id, "Name", "color");
+        for (long studentId : new long[]{7, 3, 42, 1}) {
+            faculty.addStudent(new Student(studentId, "Student" + studentId, 12, faculty));
+        }
+
+        when(facultyRepository.findById(anyLong())).thenReturn(Optional.of(faculty));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/" + id)
+                        .header("X-API-Version", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.name").value("Name"))
+                .andExpect(jsonPath("$.students[*].id").value(contains(1, 3, 7, 42)))
+                .andExpect(jsonPath("$.students[0].name").value("Student1"))
+                .andExpect(jsonPath("$.students[0].facultyId").value(id));
+    }
+
     @Test
     public void testGetFacultyInfo_whenFacultyDoesNotExist() throws Exception {
         when(facultyRepository.findById(anyLong())).thenReturn(Optional.empty());
@@ -145,7 +174,7 @@ public class FacultyMVCTest {
         list.add(faculty2);
         list.add(faculty3);
 
-        when(facultyRepository.findByColorIgnoreCaseOrNameIgnoreCase(searchTerm, searchTerm)).thenReturn(list);
+        when(facultyRepository.findByColorOrNameIgnoreCase(searchTerm)).thenReturn(list);
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/faculty/search?request=" + searchTerm)
@@ -154,6 +183,72 @@ public class FacultyMVCTest {
                 .andExpect(jsonPath("$", hasSize(numberOfFacultiesForTest)));
     }
 
+    @Test
+    public void testSearchFaculties_returnsFacultiesInRankOrder() throws Exception {
+        Faculty faculty1 = new Faculty(1, "Gryffindor", "scarlet");
+        Faculty faculty2 = new Faculty(2, "Griffin", "gold");
+        ArrayList<Faculty> list = new ArrayList<>();
+        list.add(faculty1);
+        list.add(faculty2);
+
+        when(facultyRepository.searchIdsBySimilarity("griffin", "griffin%", 20)).thenReturn(List.of(2L, 1L));
+        when(facultyRepository.findByIdInOrderByIdAsc(List.of(2L, 1L))).thenReturn(list);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/search?query=Griffin")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(1));
+    }
+
+    @Test
+    public void testSearchFaculties_whenQueryIsBlankOrLimitIsInvalid() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/search?query= ")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/search?query=griffin&limit=0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testCompute_returnsTheSameSumWithEveryStrategy() throws Exception {
+        for (SumStrategy strategy : SumStrategy.values()) {
+            mockMvc.perform(MockMvcRequestBuilders
+                            .get("/faculty/compute?n=100000&warmups=1&strategy=" + strategy)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.sum").value(5_000_050_000L))
+                    .andExpect(jsonPath("$.strategy").value(strategy.name()));
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/get_number")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(500_000_500_000L));
+    }
+
+    @Test
+    public void testCompute_whenParametersAreInvalid() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/compute?n=0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/compute?warmups=-1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/faculty/compute?strategy=GPU")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetFacultyByColor() throws Exception {
         String searchTerm = "lavender";
@@ -188,8 +283,8 @@ public class FacultyMVCTest {
         facultyDtoOutObject.put("name", name);
         facultyDtoOutObject.put("color", color);
 
-        when(facultyRepository.save(any(Faculty.class))).thenReturn(facultyReturnedAfterEditing);
-        when(facultyRepository.findById(anyLong())).thenReturn(Optional.of(facultyBeforeEditing));
+        when(facultyRepository.saveAndFlush(any(Faculty.class))).thenReturn(facultyReturnedAfterEditing);
+        when(facultyRepository.findCurrentById(anyLong())).thenReturn(Optional.of(facultyBeforeEditing));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .put("/faculty")
@@ -215,8 +310,8 @@ public class FacultyMVCTest {
         facultyDtoOutObject.put("name", name);
         facultyDtoOutObject.put("color", color);
 
-        when(facultyRepository.save(any(Faculty.class))).thenReturn(facultyReturnedAfterEditing);
-        when(facultyRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(facultyRepository.saveAndFlush(any(Faculty.class))).thenReturn(facultyReturnedAfterEditing);
+        when(facultyRepository.findCurrentById(anyLong())).thenReturn(Optional.empty());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .put("/faculty")
@@ -229,11 +324,8 @@ public class FacultyMVCTest {
     @Test
     public void testDeleteFaculty_whenFacultyExists() throws Exception {
         long id = 12;
-        String name = "Name";
-        String color = "color";
-        Faculty faculty = new Faculty(id, name, color);
 
-        when(facultyRepository.findById(anyLong())).thenReturn(Optional.of(faculty));
+        when(facultyRepository.findCurrentById(id)).thenReturn(Optional.of(new Faculty(id, "Name", "color")));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete("/faculty/" + id)
@@ -245,7 +337,7 @@ public class FacultyMVCTest {
     public void testDeleteFaculty_whenFacultyDoesNotExist() throws Exception {
         long id = 2;
 
-        when(facultyRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(facultyRepository.findCurrentById(id)).thenReturn(Optional.empty());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete("/faculty/" + id)
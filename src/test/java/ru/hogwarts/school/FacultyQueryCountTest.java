@@ -0,0 +1,94 @@
+package ru.hogwarts.school;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repositories.FacultyRepository;
+import ru.hogwarts.school.repositories.StudentRepository;
+import ru.hogwarts.school.service.FacultyService;
+
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Transactional
+public class FacultyQueryCountTest {
+    private static final int FACULTIES = 5;
+    private static final int STUDENTS_PER_FACULTY = 3;
+
+    @Autowired
+    private FacultyService facultyService;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < FACULTIES; i++) {
+            Faculty faculty = facultyRepository.save(new Faculty("Faculty" + i, i % 2 == 0 ? "red" : "green"));
+            for (int j = 0; j < STUDENTS_PER_FACULTY; j++) {
+                studentRepository.save(new Student("Student" + i + j, 11 + j, faculty));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void testGetAllFaculties_usesOneQuery() {
+        List<FacultyDtoResponse> faculties = facultyService.getAllFaculties();
+
+        Assertions.assertThat(faculties).hasSize(FACULTIES);
+        Assertions.assertThat(faculties).allSatisfy(faculty ->
+                Assertions.assertThat(faculty.getStudents()).hasSize(STUDENTS_PER_FACULTY));
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFilterByColor_usesOneQuery() {
+        List<FacultyDtoResponse> faculties = facultyService.filterByColor("red");
+
+        Assertions.assertThat(faculties).hasSize(3);
+        Assertions.assertThat(faculties).allSatisfy(faculty ->
+                Assertions.assertThat(faculty.getStudents()).hasSize(STUDENTS_PER_FACULTY));
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testGetFacultiesByColorOrName_usesOneQuery() {
+        List<FacultyDtoResponse> faculties = facultyService.getFacultiesByColorOrName("GREEN");
+
+        Assertions.assertThat(faculties).hasSize(2);
+        Assertions.assertThat(faculties).allSatisfy(faculty ->
+                Assertions.assertThat(faculty.getStudents()).hasSize(STUDENTS_PER_FACULTY));
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -14,14 +14,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import ru.hogwarts.school.controller.FacultyController;
 import ru.hogwarts.school.dto.FacultyDtoIn;
+import ru.hogwarts.school.dto.FacultyDtoInWithId;
 import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.dto.StudentDtoIn;
 import ru.hogwarts.school.dto.StudentDtoResponse;
 import ru.hogwarts.school.model.Faculty;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -111,6 +115,37 @@ public class FacultyRestTemplateTest {
         restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFaculty4Id);
     }
 
+    @Test
+    public void testGetFacultiesPage() throws Exception {
+        long savedFacultyId1 = postFacultyAndGetFacultysId("Name1", "red");
+        long savedFacultyId2 = postFacultyAndGetFacultysId("Name2", "green");
+        long savedFacultyId3 = postFacultyAndGetFacultysId("Name3", "blue");
+        long savedStudentId = postStudentAndGetStudentsId("Name", 12);
+        restTemplate.put("http://localhost:" + port + "/faculty/add_student?studentId=" + savedStudentId + "&facultyId=" + savedFacultyId2, null);
+
+        ResponseEntity<PageDtoResponse<FacultyDtoResponse>> firstPage = restTemplate
+                .exchange("http://localhost:" + port + "/faculty?limit=2", HttpMethod.GET, null,
+                        new ParameterizedTypeReference<>() {
+                        });
+        Assertions.assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(firstPage.getBody().getItems()).extracting(FacultyDtoResponse::getId)
+                .containsExactly(savedFacultyId1, savedFacultyId2);
+        Assertions.assertThat(firstPage.getBody().getItems().get(1).getStudents()).hasSize(1);
+
+        ResponseEntity<PageDtoResponse<FacultyDtoResponse>> secondPage = restTemplate
+                .exchange("http://localhost:" + port + "/faculty?limit=2&after=" + firstPage.getBody().getNext(), HttpMethod.GET, null,
+                        new ParameterizedTypeReference<>() {
+                        });
+        Assertions.assertThat(secondPage.getBody().getItems()).extracting(FacultyDtoResponse::getId)
+                .containsExactly(savedFacultyId3);
+        Assertions.assertThat(secondPage.getBody().getNext()).isNull();
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudentId);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId1);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId2);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId3);
+    }
+
     @Test
     public void testGetFacultiesByColorOrName() throws Exception {
         String searchTerm = "lavender";
@@ -190,6 +225,30 @@ public class FacultyRestTemplateTest {
         restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId);
     }
 
+    @Test
+    public void testEditFaculty_whenVersionIsStale() throws Exception {
+        long savedFacultyId = postFacultyAndGetFacultysId("Name", "color");
+        FacultyDtoResponse found = restTemplate
+                .getForObject("http://localhost:" + port + "/faculty/" + savedFacultyId, FacultyDtoResponse.class);
+
+        FacultyDtoInWithId facultyAfterEditing = new FacultyDtoInWithId("New Name", "new color", savedFacultyId);
+        facultyAfterEditing.setVersion(found.getVersion());
+        ResponseEntity<FacultyDtoResponse> firstEdit = restTemplate.exchange(
+                RequestEntity.put("http://localhost:" + port + "/faculty").body(facultyAfterEditing), FacultyDtoResponse.class);
+        Assertions.assertThat(firstEdit.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        facultyAfterEditing.setName("Other Name");
+        ResponseEntity<FacultyDtoResponse> staleEdit = restTemplate.exchange(
+                RequestEntity.put("http://localhost:" + port + "/faculty").body(facultyAfterEditing), FacultyDtoResponse.class);
+        Assertions.assertThat(staleEdit.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+
+        FacultyDtoResponse response = restTemplate
+                .getForObject("http://localhost:" + port + "/faculty/" + savedFacultyId, FacultyDtoResponse.class);
+        Assertions.assertThat(response.getName()).isEqualTo("New Name");
+
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId);
+    }
+
     @Test
     public void testEditFaculty_whenFacultyDoesNotExist() throws Exception {
         FacultyDtoResponse facultyAfterEditing = new FacultyDtoResponse();
@@ -231,6 +290,22 @@ public class FacultyRestTemplateTest {
         Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    public void testGetFacultiesWithLongestName() throws Exception {
+        long savedFaculty1Id = postFacultyAndGetFacultysId("Ravenclaw", "blue");
+        long savedFaculty2Id = postFacultyAndGetFacultysId("Gryffindor", "red");
+        long savedFaculty3Id = postFacultyAndGetFacultysId("Hufflepuff", "yellow");
+
+        ResponseEntity<String[]> response = restTemplate
+                .getForEntity("http://localhost:" + port + "/faculty/longest_name", String[].class);
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(response.getBody()).containsExactly("Gryffindor", "Hufflepuff");
+
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFaculty1Id);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFaculty2Id);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFaculty3Id);
+    }
+
     @Test
     public void testAddStudentToFaculty() throws Exception {
         long savedStudentId = postStudentAndGetStudentsId("Name", 12);
@@ -270,6 +345,61 @@ public class FacultyRestTemplateTest {
         restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId);
     }
 
+    @Test
+    public void testSearchFaculties() throws Exception {
+        long gryffindorId = postFacultyAndGetFacultysId("Gryffindor", "scarlet");
+        long gryffId = postFacultyAndGetFacultysId("Gryff", "gold");
+        long oldGryffId = postFacultyAndGetFacultysId("Old Gryff", "silver");
+        long percentId = postFacultyAndGetFacultysId("100% Gryff", "bronze");
+
+        ResponseEntity<FacultyDtoResponse[]> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/faculty/search?query=GRYFF", FacultyDtoResponse[].class);
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(response.getBody()).extracting(FacultyDtoResponse::getId)
+                .containsExactly(gryffId, gryffindorId, oldGryffId, percentId);
+
+        ResponseEntity<FacultyDtoResponse[]> limitedResponse = restTemplate.getForEntity(
+                "http://localhost:" + port + "/faculty/search?query=gryff&limit=2", FacultyDtoResponse[].class);
+        Assertions.assertThat(limitedResponse.getBody()).extracting(FacultyDtoResponse::getId)
+                .containsExactly(gryffId, gryffindorId);
+
+        ResponseEntity<FacultyDtoResponse[]> escapedResponse = restTemplate.getForEntity(
+                "http://localhost:" + port + "/faculty/search?query={query}", FacultyDtoResponse[].class, "0% g");
+        Assertions.assertThat(escapedResponse.getBody()).extracting(FacultyDtoResponse::getId)
+                .containsExactly(percentId);
+
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + gryffindorId);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + gryffId);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + oldGryffId);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + percentId);
+    }
+
+    @Test
+    public void testAddStudentsToFaculty() throws Exception {
+        long savedStudent1Id = postStudentAndGetStudentsId("Name1", 12);
+        long savedStudent2Id = postStudentAndGetStudentsId("Name2", 13);
+        long savedFacultyId = postFacultyAndGetFacultysId("Name", "color");
+
+        ResponseEntity<FacultyDtoResponse> response = restTemplate.exchange(
+                RequestEntity.put("http://localhost:" + port + "/faculty/" + savedFacultyId + "/students")
+                        .body(List.of(savedStudent1Id, savedStudent2Id)),
+                FacultyDtoResponse.class);
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(response.getBody().getStudents())
+                .extracting(StudentDtoResponse::getId, StudentDtoResponse::getFacultyId)
+                .containsExactlyInAnyOrder(tuple(savedStudent1Id, savedFacultyId), tuple(savedStudent2Id, savedFacultyId));
+
+        ResponseEntity<FacultyDtoResponse> unknownStudentResponse = restTemplate.exchange(
+                RequestEntity.put("http://localhost:" + port + "/faculty/" + savedFacultyId + "/students")
+                        .body(List.of(savedStudent1Id, 1_000_000L)),
+                FacultyDtoResponse.class);
+        Assertions.assertThat(unknownStudentResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId);
+    }
+
     @Test
     public void testGetAllStudents() throws Exception {
         long savedStudentId1 = postStudentAndGetStudentsId("Name", 12);
@@ -0,0 +1,94 @@
+package ru.hogwarts.school;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.service.ReportExecutor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+public class ReportExecutorTest {
+    private final ReportExecutor reportExecutor = new ReportExecutor(4, false);
+
+    @AfterEach
+    public void tearDown() {
+        reportExecutor.shutdown();
+    }
+
+    @Test
+    public void testRun_whenOrdered_keepsItemOrder() throws Exception {
+        List<Integer> items = IntStream.range(0, 20).boxed().toList();
+
+        // later items finish first
+        List<Integer> results = reportExecutor.run(items, item -> {
+            sleep(20 - item);
+            return item * 10;
+        }, true, Duration.ofSeconds(10));
+
+        Assertions.assertThat(results).containsExactlyElementsOf(items.stream().map(item -> item * 10).toList());
+    }
+
+    @Test
+    public void testRun_whenUnordered_returnsResultsAsTheyComplete() throws Exception {
+        List<Integer> results = reportExecutor.run(List.of(0, 1), item -> {
+            sleep(item == 0 ? 200 : 0);
+            return item;
+        }, false, Duration.ofSeconds(10));
+
+        Assertions.assertThat(results).containsExactly(1, 0);
+    }
+
+    @Test
+    public void testRun_whenTimeoutExpires_cancelsRunningTasks() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(4);
+
+        Assertions.assertThatThrownBy(() -> reportExecutor.run(List.of(1, 2, 3, 4), item -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return item;
+        }, true, Duration.ofMillis(500))).isInstanceOf(TimeoutException.class);
+
+        Assertions.assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void testRun_whenTaskFails_cancelsTheOthers() throws Exception {
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch interrupted = new CountDownLatch(3);
+
+        Assertions.assertThatThrownBy(() -> reportExecutor.run(List.of(0, 1, 2, 3), item -> {
+            try {
+                if (item == 3) {
+                    started.await();
+                    throw new IllegalArgumentException("Broken item");
+                }
+                started.countDown();
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return item;
+        }, true, Duration.ofSeconds(30)))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+
+        Assertions.assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
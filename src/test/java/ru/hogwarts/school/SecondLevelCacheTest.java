@@ -0,0 +1,200 @@
+package ru.hogwarts.school;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hogwarts.school.dto.FacultyDtoIn;
+import ru.hogwarts.school.dto.FacultyDtoInWithId;
+import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoIn;
+import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class SecondLevelCacheTest {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private FacultyService facultyService;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void testGetFaculty_isServedFromCache() {
+        FacultyDtoResponse faculty = facultyService.addFaculty(new FacultyDtoIn("Cached", "cached"));
+        facultyService.getFaculty(faculty.getId());
+        statistics.clear();
+
+        Assertions.assertThat(facultyService.getFaculty(faculty.getId()).getName()).isEqualTo("Cached");
+        Assertions.assertThat(facultyService.getFaculty(faculty.getId()).getName()).isEqualTo("Cached");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+        Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+
+        facultyService.removeFaculty(faculty.getId());
+        Assertions.assertThat(facultyService.getFaculty(faculty.getId())).isNull();
+    }
+
+    @Test
+    public void testFilterByColor_isCachedAndInvalidatedByWrites() {
+        FacultyDtoResponse faculty = facultyService.addFaculty(new FacultyDtoIn("Cached", "cached-color"));
+        facultyService.filterByColor("cached-color");
+        statistics.clear();
+
+        Assertions.assertThat(facultyService.filterByColor("cached-color")).hasSize(1);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+        Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        StudentDtoResponse student = studentService.addStudent(new StudentDtoIn("Cached", 12));
+        restTemplate.put("http://localhost:" + port + "/faculty/add_student?studentId=" + student.getId()
+                + "&facultyId=" + faculty.getId(), null);
+
+        List<FacultyDtoResponse> faculties = facultyService.filterByColor("cached-color");
+        Assertions.assertThat(faculties).hasSize(1);
+        Assertions.assertThat(faculties.get(0).getStudents())
+                .extracting(StudentDtoResponse::getId, StudentDtoResponse::getFacultyId)
+                .containsExactly(tuple(student.getId(), faculty.getId()));
+
+        studentService.removeStudent(student.getId());
+        facultyService.removeFaculty(faculty.getId());
+        Assertions.assertThat(facultyService.filterByColor("cached-color")).isEmpty();
+    }
+
+    @Test
+    public void testFilterStudentsByAge_isCachedAndInvalidatedByWrites() {
+        StudentDtoResponse student1 = studentService.addStudent(new StudentDtoIn("Cached1", 131));
+        studentService.filterStudentsByAge(131);
+        statistics.clear();
+
+        Assertions.assertThat(studentService.filterStudentsByAge(131)).extracting(StudentDtoResponse::getId)
+                .containsExactly(student1.getId());
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+
+        StudentDtoResponse student2 = studentService.addStudent(new StudentDtoIn("Cached2", 131));
+        Assertions.assertThat(studentService.filterStudentsByAge(131)).extracting(StudentDtoResponse::getId)
+                .containsExactlyInAnyOrder(student1.getId(), student2.getId());
+
+        studentService.removeStudent(student1.getId());
+        studentService.removeStudent(student2.getId());
+        Assertions.assertThat(studentService.filterStudentsByAge(131)).isEmpty();
+    }
+
+    @Test
+    public void testEditAndRemoveStudent_readCurrentRowBeforeVersionedStatement() {
+        StudentDtoResponse student = studentService.addStudent(new StudentDtoIn("Cached", 12));
+        studentService.getStudent(student.getId());
+        statistics.clear();
+
+        StudentDtoResponse edited = studentService.editStudent(new StudentDtoResponse(student.getId(), "Edited", 13, 0));
+        Assertions.assertThat(edited.getAge()).isEqualTo(13);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        statistics.clear();
+        Assertions.assertThat(studentService.removeStudent(student.getId())).isTrue();
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        Assertions.assertThat(studentService.removeStudent(student.getId())).isFalse();
+    }
+
+    @Test
+    public void testRemoveStudent_afterCachedEnrolmentAndRename() {
+        FacultyDtoResponse faculty = facultyService.addFaculty(new FacultyDtoIn("Cached", "cached-remove"));
+        StudentDtoResponse student = studentService.addStudent(new StudentDtoIn("Cached", 12));
+        studentService.getStudent(student.getId());
+        facultyService.addStudentToFaculty(student.getId(), faculty.getId());
+        studentService.editStudent(new StudentDtoResponse(student.getId(), "Renamed", 12, 0));
+        studentService.getStudent(student.getId());
+        // a write that bypasses Hibernate leaves the cached version behind the row
+        jdbcTemplate.update("UPDATE student SET version = version + 1 WHERE id = ?", student.getId());
+
+        Assertions.assertThat(studentService.removeStudent(student.getId())).isTrue();
+        Assertions.assertThat(studentService.getStudent(student.getId())).isNull();
+        Assertions.assertThat(facultyService.removeFaculty(faculty.getId())).isTrue();
+    }
+
+    @Test
+    public void testEditStudent_whenCachedVersionIsOutdated() {
+        StudentDtoResponse student = studentService.addStudent(new StudentDtoIn("Cached", 12));
+        long version = studentService.getStudent(student.getId()).getVersion();
+        jdbcTemplate.update("UPDATE student SET version = version + 1 WHERE id = ?", student.getId());
+
+        StudentDtoResponse request = new StudentDtoResponse(student.getId(), "Edited", 13, 0);
+        request.setVersion(version + 1);
+        StudentDtoResponse edited = studentService.editStudent(request);
+        Assertions.assertThat(edited.getVersion()).isEqualTo(version + 2);
+        Assertions.assertThat(studentService.getStudent(student.getId()).getName()).isEqualTo("Edited");
+
+        request.setVersion(version + 1);
+        Assertions.assertThatThrownBy(() -> studentService.editStudent(request))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        Assertions.assertThat(studentService.removeStudent(student.getId())).isTrue();
+    }
+
+    @Test
+    public void testEditFaculty_whenCachedVersionIsOutdated() {
+        FacultyDtoResponse faculty = facultyService.addFaculty(new FacultyDtoIn("Cached", "cached-edit"));
+        long version = facultyService.getFaculty(faculty.getId()).getVersion();
+        jdbcTemplate.update("UPDATE faculty SET version = version + 1 WHERE id = ?", faculty.getId());
+
+        FacultyDtoInWithId request = new FacultyDtoInWithId("Edited", "cached-edit", faculty.getId());
+        request.setVersion(version + 1);
+        FacultyDtoResponse edited = facultyService.editFaculty(request);
+        Assertions.assertThat(edited.getName()).isEqualTo("Edited");
+        Assertions.assertThat(facultyService.getFaculty(faculty.getId()).getVersion()).isEqualTo(version + 2);
+
+        Assertions.assertThatThrownBy(() -> facultyService.editFaculty(request))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        Assertions.assertThat(facultyService.removeFaculty(faculty.getId())).isTrue();
+    }
+
+    @Test
+    public void testRemoveFaculty_whenCachedVersionIsOutdated() {
+        FacultyDtoResponse faculty = facultyService.addFaculty(new FacultyDtoIn("Cached", "cached-outdated"));
+        facultyService.getFaculty(faculty.getId());
+        jdbcTemplate.update("UPDATE faculty SET version = version + 1 WHERE id = ?", faculty.getId());
+
+        Assertions.assertThat(facultyService.removeFaculty(faculty.getId())).isTrue();
+        Assertions.assertThat(facultyService.getFaculty(faculty.getId())).isNull();
+        Assertions.assertThat(facultyService.removeFaculty(faculty.getId())).isFalse();
+    }
+}
@@ -1,5 +1,6 @@
 package ru.hogwarts.school;
 
+import org.assertj.core.api.Assertions;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,10 +10,13 @@ import org.springframework.http.*;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import ru.hogwarts.school.controller.StudentController;
+import ru.hogwarts.school.dto.StudentDtoResponse;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repositories.AvatarPreviewRepository;
 import ru.hogwarts.school.repositories.AvatarRepository;
 import ru.hogwarts.school.repositories.FacultyRepository;
 import ru.hogwarts.school.repositories.StudentRepository;
@@ -20,13 +24,20 @@ import ru.hogwarts.school.service.StudentService;
 import ru.hogwarts.school.util.FacultyDTOMapper;
 import ru.hogwarts.school.util.StudentDTOMapper;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ComponentScan(basePackages = "ru.hogwarts.school")
@@ -44,6 +55,9 @@ public class StudentMVCTest {
     @MockitoBean
     private AvatarRepository avatarRepository;
 
+    @MockitoBean
+    private AvatarPreviewRepository avatarPreviewRepository;
+
     @MockitoSpyBean
     private StudentService studentService;
 
@@ -98,6 +112,26 @@ public class StudentMVCTest {
                 .andExpect(jsonPath("$.age").value(age));
     }
 
+    @Test
+    public void testGetStudentByIdV2_whenStudentExists() throws Exception {
+        long id = 1;
+        Student student = new Student(id, "Name", 12);
+        student.setVersion(3L);
+
+        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/" + id)
+                        .header("X-API-Version", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.name").value("Name"))
+                .andExpect(jsonPath("$.age").value(12))
+                .andExpect(jsonPath("$.facultyId").value(0))
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
     @Test
     public void testGetStudentInfoById_whenStudentDoesNotExist() throws Exception {
         when(studentRepository.findById(anyLong())).thenReturn(Optional.empty());
@@ -108,6 +142,37 @@ public class StudentMVCTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testGetStudentsByIds_keepsRequestOrder() throws Exception {
+        when(studentRepository.findStudentDtosByIdIn(anyCollection())).thenReturn(List.of(
+                new StudentDtoResponse(1, "Name", 10, 0),
+                new StudentDtoResponse(2, "Other", 12, 5),
+                new StudentDtoResponse(3, "Third", 13, 0)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/student/batch")
+                        .content("[3, 1, 42, 2]")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(1))
+                .andExpect(jsonPath("$[2].id").value(2))
+                .andExpect(jsonPath("$[2].facultyId").value(5));
+    }
+
+    @Test
+    public void testGetStudentsByIds_whenTooManyIds() throws Exception {
+        String ids = LongStream.rangeClosed(1, 501).mapToObj(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/student/batch")
+                        .content(ids)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetAllStudents() throws Exception {
         int numberOfStudentsForTest = 4;
@@ -182,8 +247,8 @@ public class StudentMVCTest {
         studentDtoOutObject.put("name", name);
         studentDtoOutObject.put("age", age);
 
-        when(studentRepository.save(any(Student.class))).thenReturn(studentReturnedAfterEditing);
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(studentBeforeEditing));
+        when(studentRepository.saveAndFlush(any(Student.class))).thenReturn(studentReturnedAfterEditing);
+        when(studentRepository.findCurrentById(anyLong())).thenReturn(Optional.of(studentBeforeEditing));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .put("/student")
@@ -209,8 +274,8 @@ public class StudentMVCTest {
         studentDtoOutObject.put("name", name);
         studentDtoOutObject.put("age", age);
 
-        when(studentRepository.save(any(Student.class))).thenReturn(studentReturnedAfterEditing);
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(studentRepository.saveAndFlush(any(Student.class))).thenReturn(studentReturnedAfterEditing);
+        when(studentRepository.findCurrentById(anyLong())).thenReturn(Optional.empty());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .put("/student")
@@ -227,7 +292,7 @@ public class StudentMVCTest {
         int age = 12;
         Student student = new Student(id, name, age);
 
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
+        when(studentRepository.findCurrentById(anyLong())).thenReturn(Optional.of(student));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete("/student/" + id)
@@ -239,7 +304,7 @@ public class StudentMVCTest {
     public void testDeleteStudent_whenStudentDoesNotExist() throws Exception {
         long id = 2;
 
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(studentRepository.findCurrentById(anyLong())).thenReturn(Optional.empty());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete("/student/" + id)
@@ -247,6 +312,35 @@ public class StudentMVCTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void testExportStudents_hasItsOwnAsyncTimeout() throws Exception {
+        when(studentRepository.streamAllStudentDtos()).thenReturn(Stream.of(new StudentDtoResponse(1, "Name", 12, 0)));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Assertions.assertThat(result.getRequest().getAsyncContext().getTimeout())
+                .isEqualTo(Duration.ofHours(1).toMillis());
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(jsonPath("$.name").value("Name"));
+    }
+
+    @Test
+    public void testSearchStudentNames_whenPrefixIsEmptyOrLimitIsInvalid() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/search?prefix=")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/search?prefix=A&limit=0")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetFacultyFromStudent() throws Exception {
         long facultyId = 1;
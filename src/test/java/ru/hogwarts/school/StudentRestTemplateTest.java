@@ -1,5 +1,6 @@
 package ru.hogwarts.school;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,17 +8,25 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import ru.hogwarts.school.controller.StudentController;
 import ru.hogwarts.school.dto.FacultyDtoIn;
 import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.PageDtoResponse;
 import ru.hogwarts.school.dto.StudentDtoIn;
 import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentImportDtoResponse;
+import ru.hogwarts.school.dto.StudentStatsDtoResponse;
+import ru.hogwarts.school.repositories.StudentRepository;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -31,6 +40,12 @@ public class StudentRestTemplateTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
     @Test
     public void contextLoads() throws Exception {
         Assertions.assertThat(studentController).isNotNull();
@@ -107,6 +122,241 @@ public class StudentRestTemplateTest {
         restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent4Id);
     }
 
+    @Test
+    public void testGetStudentsByIds() throws Exception {
+        long savedStudent1Id = postStudentAndGetStudentsId("First", 11);
+        long savedStudent2Id = postStudentAndGetStudentsId("Second", 12);
+        long savedFacultyId = postFacultyAndGetFacultysId("Name", "color");
+        restTemplate.put("http://localhost:" + port + "/faculty/add_student?studentId=" + savedStudent2Id + "&facultyId=" + savedFacultyId, null);
+
+        ResponseEntity<ArrayList<StudentDtoResponse>> findResponse = restTemplate
+                .exchange(
+                        "http://localhost:" + port + "/student/batch",
+                        HttpMethod.POST,
+                        new HttpEntity<>(List.of(savedStudent2Id, -1L, savedStudent1Id)),
+                        new ParameterizedTypeReference<>() {
+                        }
+                );
+
+        Assertions.assertThat(findResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(findResponse.getBody())
+                .containsExactly(new StudentDtoResponse(savedStudent2Id, "Second", 12, savedFacultyId),
+                        new StudentDtoResponse(savedStudent1Id, "First", 11, 0));
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+        restTemplate.delete("http://localhost:" + port + "/faculty/" + savedFacultyId);
+    }
+
+    @Test
+    public void testGetStudentsPage_walksAllStudentsInIdOrder() throws Exception {
+        List<Long> savedStudentIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            savedStudentIds.add(postStudentAndGetStudentsId("Name" + i, 10 + i));
+        }
+
+        List<Long> walkedIds = new ArrayList<>();
+        String next = null;
+        do {
+            String url = "http://localhost:" + port + "/student?limit=2" + (next == null ? "" : "&after=" + next);
+            ResponseEntity<PageDtoResponse<StudentDtoResponse>> pageResponse = restTemplate
+                    .exchange(url, HttpMethod.GET, null, new ParameterizedTypeReference<>() {
+                    });
+            Assertions.assertThat(pageResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+            Assertions.assertThat(pageResponse.getBody().getItems().size()).isLessThanOrEqualTo(2);
+            pageResponse.getBody().getItems().forEach(student -> walkedIds.add(student.getId()));
+            next = pageResponse.getBody().getNext();
+        } while (next != null);
+
+        Assertions.assertThat(walkedIds).isSorted().containsAll(savedStudentIds);
+
+        ResponseEntity<String> badTokenResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student?limit=2&after=not-a-token", String.class);
+        Assertions.assertThat(badTokenResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        savedStudentIds.forEach(id -> restTemplate.delete("http://localhost:" + port + "/student/" + id));
+    }
+
+    @Test
+    public void testExportStudents() throws Exception {
+        long savedStudent1Id = postStudentAndGetStudentsId("First", 11);
+        long savedStudent2Id = postStudentAndGetStudentsId("Second", 12);
+
+        ResponseEntity<String> exportResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/export", String.class);
+
+        Assertions.assertThat(exportResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(exportResponse.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        List<StudentDtoResponse> exported = new ArrayList<>();
+        for (String line : exportResponse.getBody().split("\n")) {
+            exported.add(objectMapper.readValue(line, StudentDtoResponse.class));
+        }
+        Assertions.assertThat(exported).extracting(StudentDtoResponse::getId).isSorted();
+        Assertions.assertThat(exported).contains(new StudentDtoResponse(savedStudent1Id, "First", 11, 0),
+                new StudentDtoResponse(savedStudent2Id, "Second", 12, 0));
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+    }
+
+    @Test
+    public void testImportStudents() throws Exception {
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        String array = "[{\"name\":\"Imported1\",\"age\":11},{\"name\":\"Imported2\",\"age\":12},{\"name\":\"Imported3\",\"age\":13}]";
+
+        ResponseEntity<StudentImportDtoResponse> arrayResponse = restTemplate
+                .postForEntity("http://localhost:" + port + "/student/import", new HttpEntity<>(array, jsonHeaders), StudentImportDtoResponse.class);
+
+        Assertions.assertThat(arrayResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(arrayResponse.getBody().getImported()).isEqualTo(3);
+        Assertions.assertThat(arrayResponse.getBody().getErrors()).isEmpty();
+
+        HttpHeaders ndjsonHeaders = new HttpHeaders();
+        ndjsonHeaders.setContentType(MediaType.APPLICATION_NDJSON);
+        String ndjson = "{\"name\":\"Imported4\",\"age\":14}\n" +
+                "{\"name\":\"" + "x".repeat(300) + "\",\"age\":15}\n" +
+                "not json\n";
+
+        ResponseEntity<StudentImportDtoResponse> ndjsonResponse = restTemplate
+                .postForEntity("http://localhost:" + port + "/student/import", new HttpEntity<>(ndjson, ndjsonHeaders), StudentImportDtoResponse.class);
+
+        Assertions.assertThat(ndjsonResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(ndjsonResponse.getBody().getImported()).isEqualTo(0);
+        Assertions.assertThat(ndjsonResponse.getBody().getFailed()).isEqualTo(2);
+        Assertions.assertThat(ndjsonResponse.getBody().getErrors())
+                .extracting(StudentImportDtoResponse.ChunkError::getFirstRecord, StudentImportDtoResponse.ChunkError::getLastRecord)
+                .containsExactly(tuple(1L, 2L), tuple(3L, 3L));
+
+        ResponseEntity<ArrayList<StudentDtoResponse>> allStudents = restTemplate
+                .exchange("http://localhost:" + port + "/student", HttpMethod.GET, null, new ParameterizedTypeReference<>() {
+                });
+        List<StudentDtoResponse> imported = allStudents.getBody().stream()
+                .filter(student -> student.getName().startsWith("Imported"))
+                .toList();
+        Assertions.assertThat(imported).extracting(StudentDtoResponse::getName)
+                .containsExactlyInAnyOrder("Imported1", "Imported2", "Imported3");
+
+        imported.forEach(student -> restTemplate.delete("http://localhost:" + port + "/student/" + student.getId()));
+    }
+
+    @Test
+    public void testGetStudentsNameStartingWithAAndAverageAge() throws Exception {
+        long savedStudent1Id = postStudentAndGetStudentsId("Anna", 10);
+        long savedStudent2Id = postStudentAndGetStudentsId("Bob", 12);
+        long savedStudent3Id = postStudentAndGetStudentsId("Alice", 13);
+        long savedStudent4Id = postStudentAndGetStudentsId("aaron", 17);
+
+        ResponseEntity<String[]> namesResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/name_A", String[].class);
+        Assertions.assertThat(namesResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(namesResponse.getBody()).containsExactly("ALICE", "ANNA");
+
+        ResponseEntity<Double> averageResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/get_average_age", Double.class);
+        Assertions.assertThat(averageResponse.getBody()).isEqualTo(13.0);
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent3Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent4Id);
+
+        averageResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/get_average_age", Double.class);
+        Assertions.assertThat(averageResponse.getBody()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testSearchStudentNames() throws Exception {
+        long savedStudent1Id = postStudentAndGetStudentsId("Typeahead", 10);
+        long savedStudent2Id = postStudentAndGetStudentsId("Typeahead", 11);
+        long savedStudent3Id = postStudentAndGetStudentsId("Typeaheader", 12);
+        long savedStudent4Id = postStudentAndGetStudentsId("typeahead", 13);
+        long savedStudent5Id = postStudentAndGetStudentsId("Typo", 14);
+
+        ResponseEntity<String[]> response = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/search?prefix=Typea", String[].class);
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(response.getBody()).containsExactly("Typeahead", "Typeaheader");
+        Assertions.assertThat(studentRepository.findDistinctNamesStartingWith("Typea", Limit.of(10)))
+                .containsExactly("Typeahead", "Typeaheader");
+
+        Assertions.assertThat(restTemplate.getForObject(
+                        "http://localhost:" + port + "/student/search?prefix=Ty&limit=2", String[].class))
+                .containsExactly("Typeahead", "Typeaheader");
+
+        StudentDtoResponse renamed = restTemplate
+                .getForObject("http://localhost:" + port + "/student/" + savedStudent3Id, StudentDtoResponse.class);
+        renamed.setName("Renamed");
+        restTemplate.put("http://localhost:" + port + "/student", renamed);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        Assertions.assertThat(restTemplate.getForObject(
+                        "http://localhost:" + port + "/student/search?prefix=Typea", String[].class))
+                .containsExactly("Typeahead");
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent3Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent4Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent5Id);
+        Assertions.assertThat(restTemplate.getForObject(
+                        "http://localhost:" + port + "/student/search?prefix=Typ", String[].class))
+                .isEmpty();
+    }
+
+    @Test
+    public void testPrintStudents() throws Exception {
+        long savedStudent1Id = postStudentAndGetStudentsId("Report1", 10);
+        long savedStudent2Id = postStudentAndGetStudentsId("Report2", 11);
+        long savedStudent3Id = postStudentAndGetStudentsId("Report3", 12);
+        List<String> lines = studentRepository.findStudentDtosByIdIn(List.of(savedStudent1Id, savedStudent2Id, savedStudent3Id))
+                .stream().sorted(Comparator.comparingLong(StudentDtoResponse::getId)).map(StudentDtoResponse::toString).toList();
+
+        ResponseEntity<String[]> orderedResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/print-synchronized?limit=1000", String[].class);
+        Assertions.assertThat(orderedResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(orderedResponse.getBody()).containsSubsequence(lines);
+
+        ResponseEntity<String[]> unorderedResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/print-parallel?limit=1000", String[].class);
+        Assertions.assertThat(unorderedResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(unorderedResponse.getBody()).containsAll(lines);
+
+        ResponseEntity<String[]> invalidResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/print-parallel?limit=0", String[].class);
+        Assertions.assertThat(invalidResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent3Id);
+    }
+
+    @Test
+    public void testGetStudentStats() throws Exception {
+        StudentStatsDtoResponse before = restTemplate
+                .getForObject("http://localhost:" + port + "/student/stats", StudentStatsDtoResponse.class);
+
+        long savedStudent1Id = postStudentAndGetStudentsId("Name1", 117);
+        long savedStudent2Id = postStudentAndGetStudentsId("Name2", 117);
+        restTemplate.put("http://localhost:" + port + "/student",
+                new StudentDtoResponse(savedStudent2Id, "Name2", 118, 0));
+
+        StudentStatsDtoResponse after = restTemplate
+                .getForObject("http://localhost:" + port + "/student/stats", StudentStatsDtoResponse.class);
+        Assertions.assertThat(after.getCount()).isEqualTo(before.getCount() + 2);
+        Assertions.assertThat(after.getAgeHistogram()).containsEntry(117, 1L).containsEntry(118, 1L);
+
+        ResponseEntity<Long> totalResponse = restTemplate
+                .getForEntity("http://localhost:" + port + "/student/total_number", Long.class);
+        Assertions.assertThat(totalResponse.getBody()).isEqualTo(after.getCount());
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent1Id);
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudent2Id);
+
+        StudentStatsDtoResponse afterDelete = restTemplate
+                .getForObject("http://localhost:" + port + "/student/stats", StudentStatsDtoResponse.class);
+        Assertions.assertThat(afterDelete).isEqualTo(before);
+    }
+
     @Test
     public void testGetStudentsByAgeBetween() throws Exception {
         long savedStudent1Id = postStudentAndGetStudentsId("Name", 6);
@@ -188,6 +438,30 @@ public class StudentRestTemplateTest {
         restTemplate.delete("http://localhost:" + port + "/student/" + savedStudentId);
     }
 
+    @Test
+    public void testEditStudent_whenVersionIsStale() throws Exception {
+        long savedStudentId = postStudentAndGetStudentsId("Name", 12);
+        StudentDtoResponse found = restTemplate
+                .getForObject("http://localhost:" + port + "/student/" + savedStudentId, StudentDtoResponse.class);
+
+        found.setAge(13);
+        ResponseEntity<StudentDtoResponse> firstEdit = restTemplate.exchange(
+                RequestEntity.put("http://localhost:" + port + "/student").body(found), StudentDtoResponse.class);
+        Assertions.assertThat(firstEdit.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Assertions.assertThat(firstEdit.getBody().getVersion()).isEqualTo(found.getVersion() + 1);
+
+        found.setAge(14);
+        ResponseEntity<StudentDtoResponse> staleEdit = restTemplate.exchange(
+                RequestEntity.put("http://localhost:" + port + "/student").body(found), StudentDtoResponse.class);
+        Assertions.assertThat(staleEdit.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+
+        StudentDtoResponse response = restTemplate
+                .getForObject("http://localhost:" + port + "/student/" + savedStudentId, StudentDtoResponse.class);
+        Assertions.assertThat(response.getAge()).isEqualTo(13);
+
+        restTemplate.delete("http://localhost:" + port + "/student/" + savedStudentId);
+    }
+
     @Test
     public void testEditStudent_whenStudentDoesNotExist() throws Exception {
         StudentDtoResponse studentAfterEditing = new StudentDtoResponse();
@@ -0,0 +1,53 @@
+package ru.hogwarts.school;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hogwarts.school.service.ReportExecutor;
+
+import java.time.Duration;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "virtual-threads"})
+public class VirtualThreadsTest {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private ReportExecutor reportExecutor;
+
+    @Test
+    public void testRequestHandlers_runOnVirtualThreads() {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        Assertions.assertThat(webServer.getTomcat().getConnector().getProtocolHandler().getExecutor())
+                .isInstanceOf(VirtualThreadExecutor.class);
+
+        ResponseEntity<String> response = restTemplate
+                .getForEntity("http://localhost:" + port + "/student?limit=5", String.class);
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void testReportTasks_runOnVirtualThreads() throws Exception {
+        List<Boolean> virtual = reportExecutor.run(List.of(1, 2, 3), item -> Thread.currentThread().isVirtual(),
+                true, Duration.ofSeconds(10));
+
+        Assertions.assertThat(virtual).containsOnly(true);
+    }
+}
@@ -0,0 +1,163 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading every row and aggregating in Java (what getAverageAge, getStudentsStartingWithA and
+ * getFacultiesWithLongestNames used to do) against letting the database compute the same result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregateBenchmark {
+    private static final int ROWS = 100_000;
+
+    private Connection connection;
+    private PreparedStatement allStudents;
+    private PreparedStatement allFaculties;
+    private PreparedStatement averageAge;
+    private PreparedStatement namesStartingWith;
+    private PreparedStatement maxNameLength;
+    private PreparedStatement longestNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // H2 would otherwise hand back the cached result of a repeated query instead of running it
+        connection = DriverManager.getConnection("jdbc:h2:mem:aggregate;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS student (id BIGINT PRIMARY KEY, name VARCHAR(255), age INT)");
+            statement.execute("CREATE INDEX IF NOT EXISTS student_name ON student (name)");
+            statement.execute("CREATE TABLE IF NOT EXISTS faculty (id BIGINT PRIMARY KEY, name VARCHAR(255), color VARCHAR(255))");
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM student")) {
+                count.next();
+                if (count.getLong(1) == 0) {
+                    // one name in 26 starts with "A"
+                    statement.execute("INSERT INTO student SELECT x, CONCAT(CHAR(65 + MOD(x, 26)), 'name', x), 10 + MOD(x, 10) " +
+                            "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+                    statement.execute("INSERT INTO faculty SELECT x, CONCAT('Faculty', x), 'color' " +
+                            "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+                }
+            }
+        }
+        allStudents = connection.prepareStatement("SELECT id, name, age FROM student");
+        allFaculties = connection.prepareStatement("SELECT id, name, color FROM faculty");
+        averageAge = connection.prepareStatement("SELECT COALESCE(AVG(CAST(age AS DOUBLE PRECISION)), 0.0) FROM student");
+        namesStartingWith = connection.prepareStatement("SELECT name FROM student WHERE name LIKE ?");
+        // with result reuse off H2 re-runs the scalar subquery of the repository query for every outer row, while
+        // Postgres runs it once before the scan, so the two steps are issued separately here
+        maxNameLength = connection.prepareStatement("SELECT MAX(LENGTH(name)) FROM faculty");
+        longestNames = connection.prepareStatement("SELECT name FROM faculty WHERE LENGTH(name) = ? ORDER BY id");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        allStudents.close();
+        allFaculties.close();
+        averageAge.close();
+        namesStartingWith.close();
+        maxNameLength.close();
+        longestNames.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public double averageAgeInJava() throws SQLException {
+        long sum = 0;
+        int count = 0;
+        try (ResultSet resultSet = allStudents.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong(1);
+                resultSet.getString(2);
+                sum += resultSet.getInt(3);
+                count++;
+            }
+        }
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Benchmark
+    public double averageAgeInDatabase() throws SQLException {
+        try (ResultSet resultSet = averageAge.executeQuery()) {
+            resultSet.next();
+            return resultSet.getDouble(1);
+        }
+    }
+
+    @Benchmark
+    public void namesStartingWithAInJava(Blackhole blackhole) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (ResultSet resultSet = allStudents.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong(1);
+                String name = resultSet.getString(2);
+                resultSet.getInt(3);
+                if (name.startsWith("A")) {
+                    names.add(name);
+                }
+            }
+        }
+        blackhole.consume(names);
+    }
+
+    @Benchmark
+    public void namesStartingWithAInDatabase(Blackhole blackhole) throws SQLException {
+        List<String> names = new ArrayList<>();
+        namesStartingWith.setString(1, "A%");
+        try (ResultSet resultSet = namesStartingWith.executeQuery()) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        blackhole.consume(names);
+    }
+
+    @Benchmark
+    public void longestNamesInJava(Blackhole blackhole) throws SQLException {
+        List<String> names = new ArrayList<>();
+        int maxLength = 0;
+        try (ResultSet resultSet = allFaculties.executeQuery()) {
+            while (resultSet.next()) {
+                resultSet.getLong(1);
+                String name = resultSet.getString(2);
+                resultSet.getString(3);
+                if (name.length() > maxLength) {
+                    maxLength = name.length();
+                    names.clear();
+                }
+                if (name.length() == maxLength) {
+                    names.add(name);
+                }
+            }
+        }
+        blackhole.consume(names);
+    }
+
+    @Benchmark
+    public void longestNamesInDatabase(Blackhole blackhole) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (ResultSet resultSet = maxNameLength.executeQuery()) {
+            resultSet.next();
+            longestNames.setInt(1, resultSet.getInt(1));
+        }
+        try (ResultSet resultSet = longestNames.executeQuery()) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        blackhole.consume(names);
+    }
+}
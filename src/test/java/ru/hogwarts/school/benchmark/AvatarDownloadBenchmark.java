@@ -0,0 +1,74 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Compares the old avatar download path (InputStream copied into the response stream through a heap buffer)
+ * with FileChannel.transferTo, which is what Tomcat sendfile uses to move bytes from disk to the socket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvatarDownloadBenchmark {
+    @Param({"307200", "5242880"})
+    private int fileSize;
+
+    private Path source;
+    private Path target;
+    private FileChannel targetChannel;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        source = Files.createTempFile("avatar", ".png");
+        Files.write(source, content);
+        target = Files.createTempFile("avatar-download", ".bin");
+        targetChannel = FileChannel.open(target, WRITE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        targetChannel.close();
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public long streamCopy() throws IOException {
+        targetChannel.position(0);
+        OutputStream os = Channels.newOutputStream(targetChannel);
+        try (InputStream is = Files.newInputStream(source)) {
+            return is.transferTo(os);
+        }
+    }
+
+    @Benchmark
+    public long channelTransfer() throws IOException {
+        targetChannel.position(0);
+        try (FileChannel sourceChannel = FileChannel.open(source, READ)) {
+            long position = 0;
+            long size = sourceChannel.size();
+            while (position < size) {
+                position += sourceChannel.transferTo(position, size - position, targetChannel);
+            }
+            return position;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.model.SumStrategy;
+import ru.hogwarts.school.service.ComputeService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every strategy of /faculty/compute for several range sizes. Run it with -p parallelism=... set to the core counts
+ * we deploy to; the parallelism only applies to FORK_JOIN_POOL, PARALLEL_STREAM always uses the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputeBenchmark {
+
+    @Param({"1000", "1000000", "100000000"})
+    private long n;
+
+    @Param({"SEQUENTIAL", "PARALLEL_STREAM", "FORK_JOIN_POOL", "CLOSED_FORM"})
+    private SumStrategy strategy;
+
+    @Param({"0"})
+    private int parallelism;
+
+    private ComputeService computeService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        computeService = new ComputeService(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        computeService.shutdown();
+    }
+
+    @Benchmark
+    public long sum() {
+        return computeService.sum(n, strategy);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.hogwarts.school.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.hogwarts.school.dto.FacultyDtoResponse;
+import ru.hogwarts.school.dto.FacultyDtoResponseV2;
+import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.dto.StudentDtoResponseV2;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.util.FacultyDTOMapper;
+import ru.hogwarts.school.util.StudentDTOMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The response hot paths: mapping entities to DTOs (facultyToDtoOut hashes every student DTO into a HashSet) and
+ * writing the DTOs with a Jackson mapper configured like Spring Boot's. Run with the gc profiler, which the benchmark
+ * profile adds by default, to see the allocation per operation next to the time. The V2 benchmarks measure the same
+ * paths with the immutable records served to X-API-Version: 2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int students;
+
+    private StudentDTOMapper studentDTOMapper;
+    private FacultyDTOMapper facultyDTOMapper;
+    private ObjectMapper objectMapper;
+    private Faculty faculty;
+    private List<Student> studentEntities;
+    private FacultyDtoResponse facultyDto;
+    private FacultyDtoResponseV2 facultyDtoV2;
+    private List<StudentDtoResponse> studentDtos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the mapping methods measured here use neither the repository nor the service
+        studentDTOMapper = new StudentDTOMapper(null);
+        facultyDTOMapper = new FacultyDTOMapper(null, studentDTOMapper);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        faculty = new Faculty(1, "Gryffindor", "scarlet");
+        studentEntities = new ArrayList<>(students);
+        for (int i = 1; i <= students; i++) {
+            Student student = new Student(i, "Student name " + i, 11 + i % 7, faculty);
+            faculty.addStudent(student);
+            studentEntities.add(student);
+        }
+        facultyDto = facultyDTOMapper.facultyToDtoOut(faculty);
+        facultyDtoV2 = facultyDTOMapper.facultyToDtoOutV2(faculty);
+        studentDtos = studentEntities.stream().map(studentDTOMapper::studentToDtoOut).toList();
+    }
+
+    @Benchmark
+    public List<StudentDtoResponse> studentToDtoOut() {
+        List<StudentDtoResponse> dtos = new ArrayList<>(studentEntities.size());
+        for (Student student : studentEntities) {
+            dtos.add(studentDTOMapper.studentToDtoOut(student));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public FacultyDtoResponse facultyToDtoOut() {
+        return facultyDTOMapper.facultyToDtoOut(faculty);
+    }
+
+    @Benchmark
+    public byte[] serializeStudents() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(studentDtos);
+    }
+
+    @Benchmark
+    public byte[] serializeFaculty() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(facultyDto);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeFaculty() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(facultyDTOMapper.facultyToDtoOut(faculty));
+    }
+
+    @Benchmark
+    public List<StudentDtoResponseV2> studentToDtoOutV2() {
+        List<StudentDtoResponseV2> dtos = new ArrayList<>(studentEntities.size());
+        for (Student student : studentEntities) {
+            dtos.add(studentDTOMapper.studentToDtoOutV2(student));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public FacultyDtoResponseV2 facultyToDtoOutV2() {
+        return facultyDTOMapper.facultyToDtoOutV2(faculty);
+    }
+
+    @Benchmark
+    public byte[] serializeFacultyV2() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(facultyDtoV2);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeFacultyV2() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(facultyDTOMapper.facultyToDtoOutV2(faculty));
+    }
+}
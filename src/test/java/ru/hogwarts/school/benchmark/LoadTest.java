@@ -0,0 +1,146 @@
+package ru.hogwarts.school.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.SchoolApplication;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.StudentService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Open-model load test of one endpoint: requests are started on schedule whatever the latency, and the latency of a
+ * request is measured from its scheduled start, so a saturated server shows up as growing latency and errors rather
+ * than as a slower client. The rate steps up until a step misses the objective (p99 above slo-p99-ms or more than
+ * 1% errors); the previous step is the highest sustainable rate.
+ * <p>
+ * Without url the application is booted with the test profile (H2) once per mode, platform request threads and the
+ * virtual-threads profile, and seeded with students. Arguments are key=value: url, modes=platform,virtual,
+ * path=/student?limit=20, rates=250,500,1000,2000,4000, duration-s=10, slo-p99-ms=100, students=1000.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+        String path = options.getOrDefault("path", "/student?limit=20");
+        int[] rates = Arrays.stream(options.getOrDefault("rates", "250,500,1000,2000,4000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        Duration stepDuration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "10")));
+        long sloNanos = Duration.ofMillis(Long.parseLong(options.getOrDefault("slo-p99-ms", "100"))).toNanos();
+        int students = Integer.parseInt(options.getOrDefault("students", "1000"));
+
+        Map<String, Integer> sustainable = new LinkedHashMap<>();
+        if (options.containsKey("url")) {
+            sustainable.put("server", ramp("server", URI.create(options.get("url") + path), rates, stepDuration, sloNanos));
+        } else {
+            for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+                try (ConfigurableApplicationContext context = start(mode, students)) {
+                    String port = context.getEnvironment().getProperty("local.server.port");
+                    URI uri = URI.create("http://localhost:" + port + path);
+                    sustainable.put(mode, ramp(mode, uri, rates, stepDuration, sloNanos));
+                }
+            }
+        }
+        System.out.println();
+        sustainable.forEach((mode, rate) -> System.out.printf("%-10s max sustainable rate: %d req/s%n", mode, rate));
+    }
+
+    private static ConfigurableApplicationContext start(String mode, int students) {
+        String profiles = "virtual".equals(mode) ? "test,virtual-threads" : "test";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SchoolApplication.class)
+                .run("--spring.profiles.active=" + profiles, "--server.port=0", "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        StudentService studentService = context.getBean(StudentService.class);
+        studentService.addStudents(IntStream.range(0, students)
+                .mapToObj(i -> new Student("Name" + i, 10 + i % 10))
+                .toList());
+        return context;
+    }
+
+    private static int ramp(String mode, URI uri, int[] rates, Duration stepDuration, long sloNanos) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        // warms up the JIT and the caches; not reported
+        runStep(client, uri, rates[0], Duration.ofSeconds(5));
+        System.out.printf("%-10s %8s %10s %8s %8s %8s %8s%n", "mode", "rate", "achieved", "p50 ms", "p99 ms", "max ms", "errors");
+        int sustainable = 0;
+        for (int rate : rates) {
+            Step step = runStep(client, uri, rate, stepDuration);
+            System.out.printf("%-10s %8d %10.0f %8.1f %8.1f %8.1f %8d%n", mode, rate, step.achievedRate,
+                    step.p50Nanos / 1e6, step.p99Nanos / 1e6, step.maxNanos / 1e6, step.errors);
+            if (step.p99Nanos > sloNanos || step.errors > step.requests / 100) {
+                break;
+            }
+            sustainable = rate;
+        }
+        return sustainable;
+    }
+
+    private static Step runStep(HttpClient client, URI uri, int rate, Duration duration) throws InterruptedException {
+        int requests = (int) (rate * duration.toSeconds());
+        long intervalNanos = 1_000_000_000L / rate;
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(10)).GET().build();
+        long start = System.nanoTime();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                long scheduled = start + i * intervalNanos;
+                long delay = scheduled - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                int index = i;
+                senders.execute(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - scheduled;
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        Step step = new Step();
+        step.requests = requests;
+        step.errors = errors.get();
+        step.achievedRate = (requests - step.errors) * 1e9 / elapsed;
+        step.p50Nanos = latencies[requests / 2];
+        step.p99Nanos = latencies[Math.min(requests - 1, (int) (requests * 0.99))];
+        step.maxNanos = latencies[requests - 1];
+        return step;
+    }
+
+    private static class Step {
+        private int requests;
+        private int errors;
+        private double achievedRate;
+        private long p50Nanos;
+        private long p99Nanos;
+        private long maxNanos;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.hogwarts.school.benchmark;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.repositories.StudentRepository;
+import ru.hogwarts.school.service.StudentNameIndex;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typeahead lookups of GET /student/search: StudentNameIndex against the indexed prefix query it stands in front of.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameSearchBenchmark {
+    private static final int ROWS = 100_000;
+    private static final int LIMIT = 10;
+
+    @Param({"A", "Bna", "Cname12"})
+    private String prefix;
+
+    private Connection connection;
+    private PreparedStatement namesStartingWith;
+    private StudentNameIndex studentNameIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:names;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "");
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS student (id BIGINT PRIMARY KEY, name VARCHAR(255), age INT)");
+            statement.execute("CREATE INDEX IF NOT EXISTS student_name ON student (name)");
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM student")) {
+                count.next();
+                if (count.getLong(1) == 0) {
+                    statement.execute("INSERT INTO student SELECT x, CONCAT(CHAR(65 + MOD(x, 26)), 'name', x), 10 + MOD(x, 10) " +
+                            "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT name FROM student")) {
+                while (resultSet.next()) {
+                    names.add(resultSet.getString(1));
+                }
+            }
+        }
+        namesStartingWith = connection.prepareStatement(
+                "SELECT DISTINCT name FROM student WHERE name LIKE ? ORDER BY name LIMIT " + LIMIT);
+
+        StudentRepository studentRepository = Mockito.mock(StudentRepository.class);
+        Mockito.when(studentRepository.findAllNames()).thenReturn(names);
+        studentNameIndex = new StudentNameIndex(studentRepository);
+        studentNameIndex.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        namesStartingWith.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public List<String> inMemoryIndex() {
+        return studentNameIndex.startingWith(prefix, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> databasePrefixQuery() throws SQLException {
+        List<String> names = new ArrayList<>(LIMIT);
+        namesStartingWith.setString(1, prefix + "%");
+        try (ResultSet resultSet = namesStartingWith.executeQuery()) {
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading one page of the student table with LIMIT/OFFSET (what /avatar/list?page= does) against
+ * keyset pagination (id > last id ORDER BY id LIMIT n) on a table of one million rows, at growing page depths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"1000", "100000", "900000"})
+    private int depth;
+
+    private Connection connection;
+    private PreparedStatement offsetQuery;
+    private PreparedStatement keysetQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // H2 would otherwise hand back the cached result of a repeated query instead of running it
+        connection = DriverManager.getConnection("jdbc:h2:mem:pagination;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS student (id BIGINT PRIMARY KEY, name VARCHAR(255), age INT, faculty_id BIGINT)");
+            try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM student")) {
+                count.next();
+                if (count.getLong(1) == 0) {
+                    statement.execute("INSERT INTO student SELECT x, CONCAT('Name', x), 10 + MOD(x, 10), NULL " +
+                            "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+                }
+            }
+        }
+        offsetQuery = connection.prepareStatement("SELECT id, name, age, faculty_id FROM student ORDER BY id LIMIT ? OFFSET ?");
+        keysetQuery = connection.prepareStatement("SELECT id, name, age, faculty_id FROM student WHERE id > ? ORDER BY id LIMIT ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        offsetQuery.close();
+        keysetQuery.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public void offset(Blackhole blackhole) throws SQLException {
+        offsetQuery.setInt(1, PAGE_SIZE);
+        offsetQuery.setInt(2, depth);
+        consume(offsetQuery, blackhole);
+    }
+
+    @Benchmark
+    public void keyset(Blackhole blackhole) throws SQLException {
+        // ids are contiguous, so the row at offset "depth" is the one after id "depth"
+        keysetQuery.setLong(1, depth);
+        keysetQuery.setInt(2, PAGE_SIZE);
+        consume(keysetQuery, blackhole);
+    }
+
+    private void consume(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getInt(3));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.dto.StudentDtoResponse;
+import ru.hogwarts.school.service.ReportExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Report of 64 students rendered one after another on the caller thread against ReportExecutor with pools of several
+ * sizes and with a virtual thread per student (the pool size does not apply then). The per-student task is the one
+ * StudentService.reportStudents runs, StudentDtoResponse.toString, preceded by ioMillis of blocking, as a lookup in
+ * another service would add. With ioMillis=0 the task takes microseconds of CPU, so the executor can only add its
+ * overhead; the speedup shows only when the per-student work blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+    private static final int STUDENTS = 64;
+
+    @Param({"0", "1"})
+    private long ioMillis;
+
+    @Param({"4", "16", "64"})
+    private int threads;
+
+    @Param({"true", "false"})
+    private boolean ordered;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private List<StudentDtoResponse> students;
+    private ReportExecutor reportExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        students = LongStream.rangeClosed(1, STUDENTS)
+                .mapToObj(id -> new StudentDtoResponse(id, "Name" + id, 10 + (int) (id % 10), 0))
+                .toList();
+        reportExecutor = new ReportExecutor(threads, virtualThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reportExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        List<String> lines = new ArrayList<>(students.size());
+        for (StudentDtoResponse student : students) {
+            lines.add(render(student));
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public List<String> reportExecutor() throws Exception {
+        return reportExecutor.run(students, this::render, ordered, Duration.ofSeconds(10));
+    }
+
+    private String render(StudentDtoResponse student) {
+        if (ioMillis > 0) {
+            try {
+                Thread.sleep(ioMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return student.toString();
+    }
+}